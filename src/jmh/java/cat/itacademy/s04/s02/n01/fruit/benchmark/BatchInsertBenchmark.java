@@ -0,0 +1,52 @@
+package cat.itacademy.s04.s02.n01.fruit.benchmark;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.BatchResponseDTO;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitRequestDTO;
+import cat.itacademy.s04.s02.n01.fruit.service.FruitBatchService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Inserts of one {@code POST /fruits/batch} payload per operation for several JDBC batch sizes.
+ * Rows per second = ops/s * {@link #ITEMS}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BatchInsertBenchmark {
+
+    private static final int ITEMS = 10_000;
+
+    @Param({"1", "50", "500"})
+    private int batchSize;
+
+    private ConfigurableApplicationContext context;
+    private FruitBatchService fruitBatchService;
+    private List<FruitRequestDTO> requests;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("fruit.batch.size=" + batchSize);
+        fruitBatchService = context.getBean(FruitBatchService.class);
+        requests = IntStream.range(0, ITEMS)
+                .mapToObj(i -> new FruitRequestDTO("Fruit " + i, i % 100 + 1))
+                .toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public BatchResponseDTO createFruits() {
+        return fruitBatchService.createFruits(requests);
+    }
+}
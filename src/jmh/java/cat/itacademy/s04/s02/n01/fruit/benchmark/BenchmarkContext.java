@@ -0,0 +1,49 @@
+package cat.itacademy.s04.s02.n01.fruit.benchmark;
+
+import cat.itacademy.s04.s02.n01.fruit.FruitApiH2Application;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitRequestDTO;
+import cat.itacademy.s04.s02.n01.fruit.service.FruitBatchService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+final class BenchmarkContext {
+
+    private static final int SEED_CHUNK = 10_000;
+
+    private BenchmarkContext() {
+    }
+
+    static ConfigurableApplicationContext start(String... properties) {
+        System.setProperty("spring.devtools.restart.enabled", "false");
+
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_ON_EXIT=FALSE",
+                "--spring.jpa.show-sql=false",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN"));
+        for (String property : properties) {
+            args.add("--" + property);
+        }
+
+        return new SpringApplicationBuilder(FruitApiH2Application.class)
+                .web(WebApplicationType.NONE)
+                .run(args.toArray(String[]::new));
+    }
+
+    /**
+     * Inserts {@code rows} fruits named {@code "Fruit 0".."Fruit 999"} with weights 1..100.
+     */
+    static void seed(ConfigurableApplicationContext context, int rows) {
+        FruitBatchService fruitBatchService = context.getBean(FruitBatchService.class);
+        for (int offset = 0; offset < rows; offset += SEED_CHUNK) {
+            fruitBatchService.createFruits(IntStream.range(offset, Math.min(rows, offset + SEED_CHUNK))
+                    .mapToObj(i -> new FruitRequestDTO("Fruit " + i % 1_000, i % 100 + 1))
+                    .toList());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package cat.itacademy.s04.s02.n01.fruit.benchmark;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitFilter;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitPage;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitRequestDTO;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitResponseDTO;
+import cat.itacademy.s04.s02.n01.fruit.service.FruitService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FruitServiceBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    @Param({"0", "10000"})
+    private int cacheSize;
+
+    private ConfigurableApplicationContext context;
+    private FruitService fruitService;
+    private long firstId;
+    private final FruitRequestDTO request = new FruitRequestDTO("Apple", 5);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("fruit.cache.max-size=" + cacheSize);
+        fruitService = context.getBean(FruitService.class);
+
+        firstId = fruitService.createFruit(request).getId();
+        for (int i = 1; i < ROWS; i++) {
+            fruitService.createFruit(new FruitRequestDTO("Fruit " + i, i % 100 + 1));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private long randomId() {
+        return firstId + ThreadLocalRandom.current().nextInt(ROWS);
+    }
+
+    @Benchmark
+    public Optional<FruitResponseDTO> findFruitById() {
+        return fruitService.findFruitById(randomId());
+    }
+
+    @Benchmark
+    public FruitPage getFruitPage() {
+        return fruitService.getFruitPage(FruitFilter.NONE, randomId(), 100);
+    }
+
+    @Benchmark
+    public Optional<FruitResponseDTO> updateFruit() {
+        return fruitService.updateFruit(randomId(), request);
+    }
+
+    @Benchmark
+    public void createAndDeleteFruit() {
+        FruitResponseDTO created = fruitService.createFruit(request);
+        fruitService.deleteFruit(created.getId());
+    }
+}
@@ -0,0 +1,32 @@
+package cat.itacademy.s04.s02.n01.fruit.benchmark;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitRequestDTO;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitResponseDTO;
+import cat.itacademy.s04.s02.n01.fruit.mapper.FruitMapper;
+import cat.itacademy.s04.s02.n01.fruit.model.Fruit;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+
+    private final FruitMapper fruitMapper = new FruitMapper();
+    private final FruitRequestDTO request = new FruitRequestDTO("Apple", 5);
+    private final Fruit fruit = new Fruit(1L, "Apple", 5);
+
+    @Benchmark
+    public Fruit toEntity() {
+        return fruitMapper.toEntity(request);
+    }
+
+    @Benchmark
+    public FruitResponseDTO toDTO() {
+        return fruitMapper.toDTO(fruit);
+    }
+}
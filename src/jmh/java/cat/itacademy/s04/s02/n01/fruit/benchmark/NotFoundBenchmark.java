@@ -0,0 +1,76 @@
+package cat.itacademy.s04.s02.n01.fruit.benchmark;
+
+import cat.itacademy.s04.s02.n01.fruit.controllers.FruitController;
+import cat.itacademy.s04.s02.n01.fruit.exceptions.ErrorResponse;
+import cat.itacademy.s04.s02.n01.fruit.exceptions.FruitNotFoundException;
+import cat.itacademy.s04.s02.n01.fruit.exceptions.GlobalExceptionHandler;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Missing-id flood. {@code controllerMissingId} is the current {@code GET /fruits/{id}} path
+ * (Optional from the service, 404 body built in the controller); the two exception benchmarks
+ * compare the old stack-capturing exception with the stackless {@link FruitNotFoundException}
+ * when it goes through {@link GlobalExceptionHandler}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NotFoundBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private FruitController fruitController;
+    private GlobalExceptionHandler exceptionHandler;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        fruitController = context.getBean(FruitController.class);
+        exceptionHandler = context.getBean(GlobalExceptionHandler.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private static long missingId() {
+        return 1_000_000L + ThreadLocalRandom.current().nextInt(1_000_000);
+    }
+
+    @Benchmark
+    public ResponseEntity<?> controllerMissingId() {
+        return fruitController.getFruitById(missingId(), null, null);
+    }
+
+    @Benchmark
+    public ResponseEntity<ErrorResponse> stackTraceException() {
+        try {
+            throw new StackTraceNotFoundException(FruitNotFoundException.messageFor(missingId()));
+        } catch (StackTraceNotFoundException e) {
+            return exceptionHandler.handleFruitNotFound(new FruitNotFoundException(e.getMessage()));
+        }
+    }
+
+    @Benchmark
+    public ResponseEntity<ErrorResponse> stacklessException() {
+        try {
+            throw new FruitNotFoundException(FruitNotFoundException.messageFor(missingId()));
+        } catch (FruitNotFoundException e) {
+            return exceptionHandler.handleFruitNotFound(e);
+        }
+    }
+
+    private static final class StackTraceNotFoundException extends RuntimeException {
+        StackTraceNotFoundException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package cat.itacademy.s04.s02.n01.fruit.benchmark;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitResponseDTO;
+import cat.itacademy.s04.s02.n01.fruit.mapper.FruitMapper;
+import cat.itacademy.s04.s02.n01.fruit.model.Fruit;
+import cat.itacademy.s04.s02.n01.fruit.repository.FruitRepository;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads of a {@code GET /fruits} page and of {@code GET /fruits/{id}} through managed entities plus
+ * {@link FruitMapper} versus constructor-expression projections. Pages run in a read-only transaction
+ * like {@code FruitService.getFruitPage}; by-id reads are called the way the cache loader calls them.
+ * The entity page query lives here, as the application itself no longer reads pages of entities.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProjectionBenchmark {
+
+    private static final int ROWS = 100_000;
+
+    @Param({"100", "1000"})
+    private int pageSize;
+
+    private ConfigurableApplicationContext context;
+    private FruitRepository fruitRepository;
+    private FruitMapper fruitMapper;
+    private EntityManager entityManager;
+    private TransactionTemplate readOnly;
+    private long firstId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        BenchmarkContext.seed(context, ROWS);
+        fruitRepository = context.getBean(FruitRepository.class);
+        fruitMapper = context.getBean(FruitMapper.class);
+        entityManager = context.getBean(EntityManager.class);
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+        firstId = fruitRepository.findResponsesAfter(0L, Limit.of(1)).get(0).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private long randomCursor() {
+        return firstId + ThreadLocalRandom.current().nextInt(ROWS - pageSize);
+    }
+
+    @Benchmark
+    public List<FruitResponseDTO> pageEntities() {
+        long cursor = randomCursor();
+        return readOnly.execute(status -> entityManager
+                .createQuery("select f from Fruit f where f.id > :after order by f.id", Fruit.class)
+                .setParameter("after", cursor)
+                .setMaxResults(pageSize)
+                .getResultList().stream()
+                .map(fruitMapper::toDTO)
+                .toList());
+    }
+
+    @Benchmark
+    public List<FruitResponseDTO> pageProjection() {
+        long cursor = randomCursor();
+        return readOnly.execute(status -> fruitRepository.findResponsesAfter(cursor, Limit.of(pageSize)));
+    }
+
+    @Benchmark
+    public Optional<FruitResponseDTO> byIdEntity() {
+        long id = randomCursor();
+        return fruitRepository.findById(id).map(fruitMapper::toDTO);
+    }
+
+    @Benchmark
+    public Optional<FruitResponseDTO> byIdProjection() {
+        long id = randomCursor();
+        return fruitRepository.findResponseById(id);
+    }
+}
@@ -0,0 +1,59 @@
+package cat.itacademy.s04.s02.n01.fruit.benchmark;
+
+import cat.itacademy.s04.s02.n01.fruit.cache.FruitResponseCache;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitRequestDTO;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitResponseDTO;
+import cat.itacademy.s04.s02.n01.fruit.service.FruitService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request work of {@code GET /fruits/{id}} once the fruit is cached: the default path
+ * (cached DTO, new ResponseEntity, Jackson) against the pre-serialized byte cache.
+ * Compare {@code gc.alloc.rate.norm} between the two.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseCacheBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private FruitService fruitService;
+    private FruitResponseCache fruitResponseCache;
+    private ObjectMapper objectMapper;
+    private Long id;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("fruit.response-cache.enabled=true");
+        fruitService = context.getBean(FruitService.class);
+        fruitResponseCache = context.getBean(FruitResponseCache.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        id = fruitService.createFruit(new FruitRequestDTO("Apple", 5)).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] serializedPerRequest() throws JsonProcessingException {
+        FruitResponseDTO fruit = fruitService.findFruitById(id).orElseThrow();
+        return objectMapper.writeValueAsBytes(ResponseEntity.ok(fruit).getBody());
+    }
+
+    @Benchmark
+    public byte[] preSerialized() {
+        FruitResponseCache.CachedResponse cached = fruitResponseCache.get(id, fruitService::findFruitById);
+        return ResponseEntity.ok().eTag(cached.etag()).body(cached.body()).getBody();
+    }
+}
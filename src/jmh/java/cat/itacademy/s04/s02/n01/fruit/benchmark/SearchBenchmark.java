@@ -0,0 +1,93 @@
+package cat.itacademy.s04.s02.n01.fruit.benchmark;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitFilter;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitPage;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitRequestDTO;
+import cat.itacademy.s04.s02.n01.fruit.service.FruitBatchService;
+import cat.itacademy.s04.s02.n01.fruit.service.FruitService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * First page of {@code GET /fruits} filters over 1M rows, with and without the {@code fruits} indexes.
+ * The common filters match rows spread evenly over the table; the rare ones match a few rows at its end.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SearchBenchmark {
+
+    private static final int PAGE = 100;
+    private static final int RARE = 10;
+
+    @Param({"1000000"})
+    private int rows;
+
+    @Param({"true", "false"})
+    private boolean indexed;
+
+    private ConfigurableApplicationContext context;
+    private FruitService fruitService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        BenchmarkContext.seed(context, rows);
+        context.getBean(FruitBatchService.class)
+                .createFruits(Collections.nCopies(RARE, new FruitRequestDTO("Rare Fruit", 1_000)));
+        fruitService = context.getBean(FruitService.class);
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.execute("SET OPTIMIZE_REUSE_RESULTS 0");
+        if (!indexed) {
+            jdbcTemplate.execute("DROP INDEX idx_fruits_name_key");
+            jdbcTemplate.execute("DROP INDEX idx_fruits_weight");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public FruitPage byName() {
+        int name = ThreadLocalRandom.current().nextInt(1_000);
+        return fruitService.getFruitPage(new FruitFilter("FRUIT " + name, null, null, null), null, PAGE);
+    }
+
+    @Benchmark
+    public FruitPage byNamePrefix() {
+        int prefix = ThreadLocalRandom.current().nextInt(10, 100);
+        return fruitService.getFruitPage(new FruitFilter(null, "fruit " + prefix, null, null), null, PAGE);
+    }
+
+    @Benchmark
+    public FruitPage byWeightRange() {
+        int min = ThreadLocalRandom.current().nextInt(1, 100);
+        return fruitService.getFruitPage(new FruitFilter(null, null, min, min + 1), null, PAGE);
+    }
+
+    @Benchmark
+    public FruitPage byRareName() {
+        return fruitService.getFruitPage(new FruitFilter("rare fruit", null, null, null), null, PAGE);
+    }
+
+    @Benchmark
+    public FruitPage byRareNamePrefix() {
+        return fruitService.getFruitPage(new FruitFilter(null, "rare", null, null), null, PAGE);
+    }
+
+    @Benchmark
+    public FruitPage byRareWeightRange() {
+        return fruitService.getFruitPage(new FruitFilter(null, null, 500, null), null, PAGE);
+    }
+}
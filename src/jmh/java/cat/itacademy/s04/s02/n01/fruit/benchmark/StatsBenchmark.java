@@ -0,0 +1,99 @@
+package cat.itacademy.s04.s02.n01.fruit.benchmark;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitNameStatsDTO;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitResponseDTO;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitTotalsDTO;
+import cat.itacademy.s04.s02.n01.fruit.service.FruitService;
+import cat.itacademy.s04.s02.n01.fruit.service.FruitStatsService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregates computed by the database ({@link FruitStatsService}) against the same aggregates
+ * computed in Java over every row, which is what clients had to do with {@code GET /fruits}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class StatsBenchmark {
+
+    private static final int TOP = 10;
+
+    @Param({"1000000"})
+    private int rows;
+
+    private ConfigurableApplicationContext context;
+    private FruitService fruitService;
+    private FruitStatsService fruitStatsService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        BenchmarkContext.seed(context, rows);
+        // H2 would otherwise hand back the previous result of an identical query on an unchanged table.
+        context.getBean(JdbcTemplate.class).execute("SET OPTIMIZE_REUSE_RESULTS 0");
+        fruitService = context.getBean(FruitService.class);
+        fruitStatsService = context.getBean(FruitStatsService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public FruitTotalsDTO totalsInDatabase() {
+        return fruitStatsService.getTotals();
+    }
+
+    @Benchmark
+    public FruitTotalsDTO totalsInJava() {
+        long[] totals = new long[2];
+        fruitService.streamAllFruits(fruit -> {
+            totals[0]++;
+            totals[1] += fruit.getWeightInKilos();
+        });
+        return new FruitTotalsDTO(totals[0], totals[1]);
+    }
+
+    @Benchmark
+    public List<FruitNameStatsDTO> statsByNameInDatabase() {
+        return fruitStatsService.getStatsByName(1_000);
+    }
+
+    @Benchmark
+    public Map<String, long[]> statsByNameInJava() {
+        Map<String, long[]> stats = new HashMap<>();
+        fruitService.streamAllFruits(fruit -> {
+            long[] totals = stats.computeIfAbsent(fruit.getName(), name -> new long[2]);
+            totals[0]++;
+            totals[1] += fruit.getWeightInKilos();
+        });
+        return stats;
+    }
+
+    @Benchmark
+    public List<FruitResponseDTO> heaviestInDatabase() {
+        return fruitStatsService.getHeaviestFruits(TOP);
+    }
+
+    @Benchmark
+    public PriorityQueue<FruitResponseDTO> heaviestInJava() {
+        PriorityQueue<FruitResponseDTO> heaviest =
+                new PriorityQueue<>(Comparator.comparingInt(FruitResponseDTO::getWeightInKilos));
+        fruitService.streamAllFruits(fruit -> {
+            heaviest.add(fruit);
+            if (heaviest.size() > TOP) {
+                heaviest.poll();
+            }
+        });
+        return heaviest;
+    }
+}
@@ -0,0 +1,84 @@
+package cat.itacademy.s04.s02.n01.fruit.benchmark;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitResponseDTO;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * {@code GET /fruits} bodies as JSON, Smile and CBOR, plain and gzipped (the default deflate level,
+ * as Tomcat uses): time to encode a list and to decode it back. The size of each encoded body, i.e.
+ * the bytes on the wire, is printed once per trial as {@code # wire size}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class WireFormatBenchmark {
+
+    @Param({"10000", "1000000"})
+    private int size;
+
+    @Param({"json", "smile", "cbor"})
+    private String format;
+
+    @Param({"identity", "gzip"})
+    private String encoding;
+
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private List<FruitResponseDTO> fruits;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = switch (format) {
+            case "json" -> Jackson2ObjectMapperBuilder.json().build();
+            case "smile" -> Jackson2ObjectMapperBuilder.smile().build();
+            case "cbor" -> Jackson2ObjectMapperBuilder.cbor().build();
+            default -> throw new IllegalArgumentException(format);
+        };
+        JavaType listType = objectMapper.getTypeFactory().constructCollectionType(List.class, FruitResponseDTO.class);
+        writer = objectMapper.writerFor(listType);
+        reader = objectMapper.readerFor(listType);
+        fruits = LongStream.rangeClosed(1, size)
+                .mapToObj(id -> new FruitResponseDTO(id, "Fruit " + id, (int) (id % 100) + 1))
+                .toList();
+        encoded = encode();
+        System.out.printf("%n# wire size: %s/%s, %d fruits = %d bytes (%.1f per fruit)%n",
+                format, encoding, size, encoded.length, (double) encoded.length / size);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(encoded == null ? 8192 : encoded.length);
+        try (OutputStream out = encoding.equals("gzip") ? new GZIPOutputStream(bytes, 8192) : bytes) {
+            writer.writeValue(out, fruits);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public List<FruitResponseDTO> decode() throws IOException {
+        InputStream bytes = new ByteArrayInputStream(encoded);
+        try (InputStream in = encoding.equals("gzip") ? new GZIPInputStream(bytes, 8192) : bytes) {
+            return reader.readValue(in);
+        }
+    }
+}
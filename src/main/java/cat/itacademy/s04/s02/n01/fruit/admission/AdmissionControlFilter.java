@@ -0,0 +1,185 @@
+package cat.itacademy.s04.s02.n01.fruit.admission;
+
+import cat.itacademy.s04.s02.n01.fruit.exceptions.ErrorResponse;
+import cat.itacademy.s04.s02.n01.fruit.metrics.FruitErrorMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Admission control for {@code /fruits/**}: a token bucket per client (the remote address, or the
+ * {@code X-Client-Id} header when the request comes from one of {@code fruit.admission.trusted-proxies})
+ * and a cap on concurrent reads and on concurrent writes. A request that
+ * is over either limit is answered at once, {@code 429} or {@code 503} with {@code Retry-After},
+ * rather than queueing for a Tomcat thread or a database connection. Nothing else is filtered, so
+ * {@code /health} and {@code /actuator} stay responsive during a flood.
+ */
+@Component
+@Profile("!reactive")
+@Order(Ordered.HIGHEST_PRECEDENCE + 10) // after the http.server.requests observation, so rejections are timed too
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private final boolean enabled;
+    private final String clientHeader;
+    private final Set<String> trustedProxies;
+    private final ClientRateLimiter rateLimiter;
+    private final ConcurrencyLimit reads;
+    private final ConcurrencyLimit writes;
+    private final ObjectMapper objectMapper;
+    private final FruitErrorMetrics errorMetrics;
+
+    public AdmissionControlFilter(ObjectMapper objectMapper,
+                                  FruitErrorMetrics errorMetrics,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${fruit.admission.enabled:true}") boolean enabled,
+                                  @Value("${fruit.admission.client-header:X-Client-Id}") String clientHeader,
+                                  @Value("${fruit.admission.trusted-proxies:}") List<String> trustedProxies,
+                                  @Value("${fruit.admission.rate:200}") double rate,
+                                  @Value("${fruit.admission.burst:400}") int burst,
+                                  @Value("${fruit.admission.max-clients:100000}") long maxClients,
+                                  @Value("${fruit.admission.max-concurrent-reads:64}") int maxConcurrentReads,
+                                  @Value("${fruit.admission.max-concurrent-writes:16}") int maxConcurrentWrites) {
+        this.enabled = enabled;
+        this.clientHeader = clientHeader;
+        this.trustedProxies = Set.copyOf(trustedProxies);
+        this.rateLimiter = new ClientRateLimiter(rate, burst, maxClients, System::nanoTime);
+        this.reads = new ConcurrencyLimit(maxConcurrentReads);
+        this.writes = new ConcurrencyLimit(maxConcurrentWrites);
+        this.objectMapper = objectMapper;
+        this.errorMetrics = errorMetrics;
+
+        Gauge.builder("fruit.admission.in-flight", reads, ConcurrencyLimit::inFlight)
+                .description("Admitted /fruits requests in progress")
+                .tag("class", "read")
+                .register(meterRegistry);
+        Gauge.builder("fruit.admission.in-flight", writes, ConcurrencyLimit::inFlight)
+                .description("Admitted /fruits requests in progress")
+                .tag("class", "write")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        return !enabled || !(uri.equals("/fruits") || uri.startsWith("/fruits/"));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        long waitNanos = rateLimiter.tryAcquire(clientKey(request));
+        if (waitNanos > 0) {
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, "rate_limited",
+                    "Too many requests from this client", ceilSeconds(waitNanos));
+            return;
+        }
+
+        // An event stream stays open for minutes without doing any work, so it does not take a slot.
+        if (request.getRequestURI().equals("/fruits/events")) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        boolean read = request.getMethod().equals("GET") || request.getMethod().equals("HEAD");
+        ConcurrencyLimit limit = read ? reads : writes;
+        if (!limit.tryAcquire()) {
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, "overloaded",
+                    "Too many concurrent " + (read ? "reads" : "writes") + ", try again shortly", 1);
+            return;
+        }
+
+        Release release = new Release(limit);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            // A streamed response (export, StreamingResponseBody) keeps its slot until it has been written.
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(release);
+            } else {
+                release.run();
+            }
+        }
+    }
+
+    private static long ceilSeconds(long nanos) {
+        long second = TimeUnit.SECONDS.toNanos(1);
+        return (nanos + second - 1) / second;
+    }
+
+    // Any client can send the header, so it is only believed from a proxy that sets it itself;
+    // otherwise a flood could get a fresh bucket per request by changing it.
+    private String clientKey(HttpServletRequest request) {
+        String address = request.getRemoteAddr();
+        if (!trustedProxies.contains(address)) {
+            return address;
+        }
+        String client = request.getHeader(clientHeader);
+        return client == null || client.isBlank() ? address : client;
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, String reason, String message,
+                        long retryAfterSeconds) throws IOException {
+        errorMetrics.record(status, reason);
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), ErrorResponse.of(status, message));
+    }
+
+    private static final class Release implements AsyncListener, Runnable {
+
+        private final ConcurrencyLimit limit;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Release(ConcurrencyLimit limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void run() {
+            if (released.compareAndSet(false, true)) {
+                limit.release();
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            run();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            run();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            run();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
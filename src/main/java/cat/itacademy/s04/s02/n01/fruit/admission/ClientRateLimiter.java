@@ -0,0 +1,54 @@
+package cat.itacademy.s04.s02.n01.fruit.admission;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * A token bucket per client key, {@code rate} tokens per second up to {@code burst}. Each bucket is a
+ * single {@link AtomicLong} holding the time at which it would be full again (the GCRA form of a
+ * token bucket), so taking a token is one compare-and-set and no lock is ever held. Keys not seen
+ * for a while are dropped, and at most {@code maxClients} are kept.
+ */
+final class ClientRateLimiter {
+
+    private final long nanosPerToken;
+    private final long burstNanos;
+    private final LongSupplier nanoTime;
+    private final Cache<String, AtomicLong> buckets;
+
+    ClientRateLimiter(double rate, int burst, long maxClients, LongSupplier nanoTime) {
+        this.nanosPerToken = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        this.burstNanos = nanosPerToken * burst;
+        this.nanoTime = nanoTime;
+        // A bucket left alone for this long is full again, so forgetting it changes nothing.
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterAccess(Duration.ofNanos(burstNanos).plusSeconds(1))
+                .build();
+    }
+
+    /**
+     * Takes a token for {@code client}. Returns 0 if there was one, otherwise the nanoseconds until
+     * there will be (nothing is taken then).
+     */
+    long tryAcquire(String client) {
+        AtomicLong fullAt = buckets.get(client, key -> new AtomicLong(Long.MIN_VALUE));
+        long now = nanoTime.getAsLong();
+        while (true) {
+            long current = fullAt.get();
+            long next = (current == Long.MIN_VALUE || current - now < 0 ? now : current) + nanosPerToken;
+            long excess = next - now - burstNanos;
+            if (excess > 0) {
+                return excess;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package cat.itacademy.s04.s02.n01.fruit.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * At most {@code max} requests of one class at a time. {@link #tryAcquire()} never waits: a request
+ * over the limit is turned away instead of queueing for a thread or a database connection.
+ */
+final class ConcurrencyLimit {
+
+    private final int max;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    ConcurrencyLimit(int max) {
+        this.max = max;
+    }
+
+    boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= max) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void release() {
+        inFlight.decrementAndGet();
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+}
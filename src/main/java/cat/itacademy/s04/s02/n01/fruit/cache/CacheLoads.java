@@ -0,0 +1,41 @@
+package cat.itacademy.s04.s02.n01.fruit.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Loads on the calling thread without holding a cache lock: the first caller publishes an
+ * incomplete future and fills it, concurrent callers wait on that future. An invalidation only
+ * removes the future, so it never waits for a load (a writer inside a transaction may otherwise
+ * block on a load that is itself waiting for the writer's pooled connection), and a load that
+ * was invalidated while running is not kept.
+ */
+final class CacheLoads {
+
+    private CacheLoads() {
+    }
+
+    static <K, V> V get(AsyncCache<K, V> cache, K key, Function<K, V> loader) {
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> cached = cache.get(key, (k, executor) -> load);
+        if (cached != load) {
+            try {
+                return cached.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        try {
+            V value = loader.apply(key);
+            load.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        }
+    }
+}
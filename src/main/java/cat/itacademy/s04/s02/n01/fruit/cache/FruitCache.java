@@ -0,0 +1,84 @@
+package cat.itacademy.s04.s02.n01.fruit.cache;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitResponseDTO;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Fruits by id. Concurrent misses for the same id share one load, also with {@code max-size=0},
+ * which keeps nothing between requests.
+ */
+@Component
+public class FruitCache {
+
+    private final AsyncCache<Long, FruitResponseDTO> cache;
+    private final SingleFlight<Long, FruitResponseDTO> loads;
+
+    public FruitCache(MeterRegistry meterRegistry,
+                      @Value("${fruit.cache.max-size:10000}") long maxSize,
+                      @Value("${fruit.cache.ttl:10m}") Duration ttl) {
+        if (maxSize > 0) {
+            this.cache = Caffeine.newBuilder()
+                    .maximumSize(maxSize)
+                    .expireAfterWrite(ttl)
+                    .recordStats()
+                    .buildAsync();
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, "fruits");
+        } else {
+            this.cache = null;
+        }
+        this.loads = new SingleFlight<>(meterRegistry, "fruits");
+    }
+
+    public FruitResponseDTO get(Long id, Function<Long, FruitResponseDTO> loader) {
+        Function<Long, FruitResponseDTO> shared = key -> loads.load(key, loader);
+        return cache == null ? shared.apply(id) : CacheLoads.get(cache, id, shared);
+    }
+
+    public void put(FruitResponseDTO fruit) {
+        if (cache == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.put(fruit.getId(), CompletableFuture.completedFuture(fruit));
+                }
+            });
+        } else {
+            cache.put(fruit.getId(), CompletableFuture.completedFuture(fruit));
+        }
+    }
+
+    // Invalidated now so this transaction reads its own writes, and again once it completes so a
+    // reader that fetched the row before the commit cannot leave a stale entry behind.
+    public void invalidate(Long id) {
+        evict(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(id);
+                }
+            });
+        }
+    }
+
+    private void evict(Long id) {
+        loads.forget(id);
+        if (cache != null) {
+            cache.synchronous().invalidate(id);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package cat.itacademy.s04.s02.n01.fruit.cache;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitRequestDTO;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitResponseDTO;
+import cat.itacademy.s04.s02.n01.fruit.exceptions.IdempotencyKeyReusedException;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * The fruit created for each {@code Idempotency-Key} of {@code POST /fruits}, so that a retried
+ * request gets the original fruit back instead of inserting another. A retry that arrives while the
+ * first request is still running waits for it ({@link CacheLoads}); a creation that failed is not
+ * kept and can be retried. Keys live for {@code fruit.idempotency.ttl}, at most
+ * {@code fruit.idempotency.max-size} of them, in this process, and also in H2 with
+ * {@code fruit.idempotency.store=jdbc} ({@link FruitIdempotencyTable}), which is read on a miss.
+ */
+@Component
+public class FruitIdempotencyStore {
+
+    public record Result(FruitResponseDTO fruit, boolean replayed) {
+    }
+
+    private record Entry(String name, int weightInKilos, FruitResponseDTO fruit) {
+
+        static Entry of(FruitIdempotencyTable.StoredKey stored) {
+            return new Entry(stored.name(), stored.weightInKilos(), stored.fruit());
+        }
+
+        boolean matches(FruitRequestDTO request) {
+            return Objects.equals(name, request.getName()) && weightInKilos == request.getWeightInKilos();
+        }
+    }
+
+    private final AsyncCache<String, Entry> cache;
+    private final FruitIdempotencyTable table;
+    private final Counter created;
+    private final Counter replayed;
+    private final Counter rejected;
+
+    public FruitIdempotencyStore(MeterRegistry meterRegistry,
+                                 Optional<FruitIdempotencyTable> table,
+                                 @Value("${fruit.idempotency.max-size:100000}") long maxSize,
+                                 @Value("${fruit.idempotency.ttl:24h}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "fruit-idempotency-keys");
+        this.table = table.orElse(null);
+        this.created = counter(meterRegistry, "created");
+        this.replayed = counter(meterRegistry, "replayed");
+        this.rejected = counter(meterRegistry, "rejected");
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("fruit.idempotency")
+                .description("POST /fruits with an Idempotency-Key: fruits created, originals returned to a "
+                        + "repeated key, and repeated keys rejected for a different body")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs {@code create} for the first request with {@code key}; later requests with the same key and
+     * body get its fruit with {@code replayed} set. {@link IdempotencyKeyReusedException} when the key
+     * was used for a different body.
+     */
+    public Result create(String key, FruitRequestDTO request, Supplier<FruitResponseDTO> create) {
+        // The loader runs on this thread, and only for the caller that inserted the key.
+        boolean[] loaded = new boolean[1];
+        Entry entry = CacheLoads.get(cache, key, k -> {
+            if (table != null) {
+                Entry stored = table.find(k).map(Entry::of).orElse(null);
+                if (stored != null) {
+                    return stored;
+                }
+            }
+            FruitResponseDTO fruit;
+            try {
+                fruit = table == null ? create.get() : table.create(k, request, create);
+            } catch (DuplicateKeyException e) {
+                // Another instance stored the key between the lookup and the insert.
+                return table.find(k).map(Entry::of).orElseThrow(() -> e);
+            }
+            loaded[0] = true;
+            return new Entry(request.getName(), request.getWeightInKilos(), fruit);
+        });
+
+        if (loaded[0]) {
+            created.increment();
+            return new Result(entry.fruit(), false);
+        }
+        if (!entry.matches(request)) {
+            rejected.increment();
+            throw new IdempotencyKeyReusedException(key);
+        }
+        replayed.increment();
+        return new Result(entry.fruit(), true);
+    }
+}
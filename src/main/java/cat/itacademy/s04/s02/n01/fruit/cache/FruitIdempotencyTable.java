@@ -0,0 +1,107 @@
+package cat.itacademy.s04.s02.n01.fruit.cache;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitRequestDTO;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitResponseDTO;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * The {@code Idempotency-Key}s of {@link FruitIdempotencyStore} kept in H2 as well
+ * ({@code fruit.idempotency.store=jdbc}), so that they survive a restart and are shared by every
+ * instance on the same database. A key is inserted in the transaction that creates its fruit: either
+ * both commit or neither does, and of two instances racing on one key only the first commits.
+ */
+@Component
+@Profile("!memory")
+@ConditionalOnProperty(name = "fruit.idempotency.store", havingValue = "jdbc")
+public class FruitIdempotencyTable {
+
+    static final String CREATE_SQL = "CREATE TABLE IF NOT EXISTS fruit_idempotency_keys ("
+            + "idempotency_key VARCHAR(255) NOT NULL PRIMARY KEY, "
+            + "name VARCHAR(255), "
+            + "weight_in_kilos INTEGER NOT NULL, "
+            + "fruit_id BIGINT NOT NULL, "
+            + "created_at TIMESTAMP NOT NULL)";
+    static final String CREATE_INDEX_SQL = "CREATE INDEX IF NOT EXISTS idx_fruit_idempotency_keys_created_at "
+            + "ON fruit_idempotency_keys (created_at)";
+
+    private static final int PURGE_EVERY = 1000;
+
+    /**
+     * A stored key: the request it was first used with and the fruit that request created.
+     */
+    public record StoredKey(String name, int weightInKilos, FruitResponseDTO fruit) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration ttl;
+    private final AtomicLong inserts = new AtomicLong();
+
+    public FruitIdempotencyTable(JdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate,
+                                 @Value("${fruit.idempotency.ttl:24h}") Duration ttl) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.ttl = ttl;
+    }
+
+    @PostConstruct
+    void createTable() {
+        jdbcTemplate.execute(CREATE_SQL);
+        jdbcTemplate.execute(CREATE_INDEX_SQL);
+    }
+
+    /**
+     * The key as stored, unless it is missing or older than {@code fruit.idempotency.ttl}.
+     */
+    public Optional<StoredKey> find(String key) {
+        List<StoredKey> keys = jdbcTemplate.query(
+                "SELECT name, weight_in_kilos, fruit_id FROM fruit_idempotency_keys "
+                        + "WHERE idempotency_key = ? AND created_at > ?",
+                (rs, row) -> new StoredKey(rs.getString(1), rs.getInt(2),
+                        new FruitResponseDTO(rs.getLong(3), rs.getString(1), rs.getInt(2))),
+                key, expiredBefore());
+        return keys.stream().findFirst();
+    }
+
+    /**
+     * Runs {@code create} and stores {@code key} for its fruit in one transaction.
+     * {@link DuplicateKeyException} when another instance stored the key first: the transaction is
+     * then rolled back, so no fruit is inserted, and the caller reads that instance's key instead.
+     */
+    public FruitResponseDTO create(String key, FruitRequestDTO request, Supplier<FruitResponseDTO> create) {
+        // The fruit cache and the created event only see the fruit once this transaction commits.
+        return transactionTemplate.execute(status -> {
+            Timestamp expiredBefore = expiredBefore();
+            jdbcTemplate.update("DELETE FROM fruit_idempotency_keys WHERE idempotency_key = ? AND created_at <= ?",
+                    key, expiredBefore);
+            FruitResponseDTO fruit = create.get();
+            jdbcTemplate.update("INSERT INTO fruit_idempotency_keys "
+                            + "(idempotency_key, name, weight_in_kilos, fruit_id, created_at) VALUES (?, ?, ?, ?, ?)",
+                    key, request.getName(), request.getWeightInKilos(), fruit.getId(), Timestamp.from(Instant.now()));
+            if (inserts.incrementAndGet() % PURGE_EVERY == 0) {
+                jdbcTemplate.update("DELETE FROM fruit_idempotency_keys WHERE created_at <= ?", expiredBefore);
+            }
+            return fruit;
+        });
+    }
+
+    private Timestamp expiredBefore() {
+        return Timestamp.from(Instant.now().minus(ttl));
+    }
+}
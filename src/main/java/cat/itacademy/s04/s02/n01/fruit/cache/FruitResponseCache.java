@@ -0,0 +1,93 @@
+package cat.itacademy.s04.s02.n01.fruit.cache;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitResponseDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+@Component
+public class FruitResponseCache {
+
+    public record CachedResponse(byte[] body, String etag) {
+
+        public boolean matches(String ifNoneMatch) {
+            return etagMatches(ifNoneMatch, etag);
+        }
+    }
+
+    public static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private final boolean enabled;
+    private final ObjectWriter writer;
+    private final AsyncCache<Long, CachedResponse> cache;
+
+    public FruitResponseCache(ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${fruit.response-cache.enabled:false}") boolean enabled,
+                              @Value("${fruit.response-cache.max-size:10000}") long maxSize,
+                              @Value("${fruit.response-cache.ttl:10m}") Duration ttl) {
+        this.enabled = enabled;
+        this.writer = objectMapper.writerFor(FruitResponseDTO.class);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "fruit-responses");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public CachedResponse get(Long id, Function<Long, Optional<FruitResponseDTO>> loader) {
+        return CacheLoads.get(cache, id, key -> loader.apply(key)
+                .map(this::serialize)
+                .orElse(null));
+    }
+
+    public void invalidate(Long id) {
+        cache.synchronous().invalidate(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.synchronous().invalidate(id);
+                }
+            });
+        }
+    }
+
+    private CachedResponse serialize(FruitResponseDTO fruit) {
+        try {
+            byte[] body = writer.writeValueAsBytes(fruit);
+            return new CachedResponse(body, fruit.etag());
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
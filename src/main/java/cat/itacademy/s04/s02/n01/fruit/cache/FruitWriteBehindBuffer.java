@@ -0,0 +1,327 @@
+package cat.itacademy.s04.s02.n01.fruit.cache;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitFilter;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitPage;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitRequestDTO;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitResponseDTO;
+import cat.itacademy.s04.s02.n01.fruit.events.FruitEventBroadcaster;
+import cat.itacademy.s04.s02.n01.fruit.repository.FruitSpecifications;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Write-behind buffer for unconditional {@code PUT /fruits/{id}} (opt-in). Updates are kept per id,
+ * last write wins, and written by one background thread in a single JDBC batch per flush, every
+ * {@code flush-interval} or as soon as {@code max-pending} ids are waiting.
+ * <p>
+ * Each entry remembers the version the fruit had when it was first buffered, and the flush only
+ * applies it if the row still has that version. A write that reached the database another way in
+ * the meantime (batch update, conditional update, delete) therefore wins over the buffered one.
+ * Readers see a buffered fruit with the version the flush will give it, and its {@code updated}
+ * event is published once the flush has written it.
+ */
+@Slf4j
+@Component
+@Profile("!memory")
+public class FruitWriteBehindBuffer {
+
+    static final String UPDATE_SQL = "UPDATE fruits SET name = ?, weight_in_kilos = ?, version = version + 1 "
+            + "WHERE id = ? AND version = ?";
+
+    private record PendingUpdate(String name, int weightInKilos, long baseVersion) {
+    }
+
+    private final boolean enabled;
+    private final Duration flushInterval;
+    private final int maxPending;
+    private final Map<Long, PendingUpdate> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private volatile boolean closed;
+    private final ReadWriteLock reconcileLock = new ReentrantReadWriteLock();
+    private final ScheduledExecutorService flusher;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final FruitCache fruitCache;
+    private final FruitResponseCache fruitResponseCache;
+    private final FruitEventBroadcaster fruitEvents;
+
+    private final Counter buffered;
+    private final Counter coalesced;
+    private final Counter written;
+    private final Counter stale;
+    private final Counter failed;
+    private final Timer flushTimer;
+    private final DistributionSummary flushSize;
+
+    public FruitWriteBehindBuffer(JdbcTemplate jdbcTemplate,
+                                  TransactionTemplate transactionTemplate,
+                                  FruitCache fruitCache,
+                                  FruitResponseCache fruitResponseCache,
+                                  FruitEventBroadcaster fruitEvents,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${fruit.write-behind.enabled:false}") boolean enabled,
+                                  @Value("${fruit.write-behind.flush-interval:200ms}") Duration flushInterval,
+                                  @Value("${fruit.write-behind.max-pending:1000}") int maxPending) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.fruitCache = fruitCache;
+        this.fruitResponseCache = fruitResponseCache;
+        this.fruitEvents = fruitEvents;
+        this.enabled = enabled;
+        this.flushInterval = flushInterval;
+        this.maxPending = maxPending;
+
+        Gauge.builder("fruit.write_behind.pending", pending, Map::size)
+                .description("Fruit updates waiting to be flushed")
+                .register(meterRegistry);
+        this.buffered = updates(meterRegistry, "buffered");
+        this.coalesced = updates(meterRegistry, "coalesced");
+        this.written = flushed(meterRegistry, "written");
+        this.stale = flushed(meterRegistry, "stale");
+        this.failed = flushed(meterRegistry, "failed");
+        this.flushTimer = Timer.builder("fruit.write_behind.flush")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.flushSize = DistributionSummary.builder("fruit.write_behind.flush.size")
+                .register(meterRegistry);
+
+        this.flusher = enabled
+                ? Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                        .name("fruit-write-behind").daemon().factory())
+                : null;
+    }
+
+    // Scheduled once the bean is fully built, not from the constructor.
+    @PostConstruct
+    void start() {
+        if (flusher != null) {
+            long interval = flushInterval.toMillis();
+            flusher.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static Counter updates(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("fruit.write_behind.updates").tag("result", result).register(meterRegistry);
+    }
+
+    private static Counter flushed(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("fruit.write_behind.flushed").tag("result", result).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Buffers {@code request} for {@code id}, replacing any update still waiting for it, or returns
+     * {@code null} when the fruit does not exist. {@code stored} looks up the fruit as last written to
+     * the database (its version is the one the flush will expect). The returned response carries the
+     * version the row gets when the flush applies the update.
+     */
+    public FruitResponseDTO put(Long id, FruitRequestDTO request, Function<Long, FruitResponseDTO> stored) {
+        // Shared with other puts, exclusive with the end of a flush: the base version read here
+        // is either rebased by that flush or read after it.
+        PendingUpdate merged;
+        reconcileLock.readLock().lock();
+        try {
+            PendingUpdate previous = pending.get(id);
+            long baseVersion;
+            if (previous != null) {
+                baseVersion = previous.baseVersion();
+            } else {
+                FruitResponseDTO current = stored.apply(id);
+                if (current == null) {
+                    return null;
+                }
+                baseVersion = current.getVersion() == null ? 0L : current.getVersion();
+            }
+
+            PendingUpdate update = new PendingUpdate(request.getName(), request.getWeightInKilos(), baseVersion);
+            merged = pending.merge(id, update, (old, next) ->
+                    new PendingUpdate(next.name(), next.weightInKilos(), old.baseVersion()));
+            (merged == update ? buffered : coalesced).increment();
+        } finally {
+            reconcileLock.readLock().unlock();
+        }
+        fruitResponseCache.invalidate(id);
+
+        // Once closed, the flusher is gone and the last flush may already have run, so this one
+        // writes its own update.
+        if (closed) {
+            flush();
+        } else if (pending.size() >= maxPending && flushRequested.compareAndSet(false, true)) {
+            try {
+                flusher.execute(() -> {
+                    flushRequested.set(false);
+                    flush();
+                });
+            } catch (RejectedExecutionException e) {
+                flushRequested.set(false);
+                flush();
+            }
+        }
+        return response(id, merged);
+    }
+
+    private static FruitResponseDTO response(Long id, PendingUpdate update) {
+        return new FruitResponseDTO(id, update.name(), update.weightInKilos(), update.baseVersion() + 1);
+    }
+
+    /**
+     * The buffered state of the fruit, or {@code null} when no update is waiting for it.
+     */
+    public FruitResponseDTO get(Long id) {
+        PendingUpdate update = pending.isEmpty() ? null : pending.get(id);
+        return update == null ? null : response(id, update);
+    }
+
+    public boolean isPending(Long id) {
+        return !pending.isEmpty() && pending.containsKey(id);
+    }
+
+    /**
+     * {@code page}, read from the database with {@code filter} after id {@code after}, as it looks with
+     * the buffered updates applied: a buffered fruit is replaced by its buffered state if that still
+     * matches the filter and dropped if not, and one the stored row kept out of the page is added if its
+     * buffered state matches. Only ids up to the page's cursor are considered, since later ones belong
+     * to later pages. At most {@code limit} fruits are returned; the cursor moves back if some are cut.
+     */
+    public FruitPage overlay(FruitPage page, FruitFilter filter, long after, int limit) {
+        if (pending.isEmpty()) {
+            return page;
+        }
+        Long upTo = page.nextCursor();
+        TreeMap<Long, FruitResponseDTO> fruits = new TreeMap<>();
+        for (FruitResponseDTO fruit : page.fruits()) {
+            fruits.put(fruit.getId(), fruit);
+        }
+        pending.forEach((id, update) -> {
+            if (id <= after || (upTo != null && id > upTo)) {
+                return;
+            }
+            if (FruitSpecifications.matches(filter, update.name(), update.weightInKilos())) {
+                fruits.put(id, response(id, update));
+            } else {
+                fruits.remove(id);
+            }
+        });
+
+        List<FruitResponseDTO> result = new ArrayList<>(fruits.values());
+        if (result.size() > limit) {
+            result = new ArrayList<>(result.subList(0, limit));
+            return new FruitPage(result, result.get(limit - 1).getId());
+        }
+        return new FruitPage(result, upTo);
+    }
+
+    /**
+     * Drops the update waiting for {@code id}, for writes that replace or remove the row directly.
+     */
+    public void discard(Long id) {
+        if (!pending.isEmpty()) {
+            pending.remove(id);
+        }
+    }
+
+    /**
+     * Writes everything buffered so far in one transaction. Entries stay visible to readers until
+     * the transaction has committed and the caches are invalidated, and an entry overwritten during
+     * the flush is kept for the next one. On failure nothing is removed, so the next flush retries.
+     */
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Long, PendingUpdate>> batch = new ArrayList<>(pending.size());
+        pending.forEach((id, update) -> batch.add(Map.entry(id, update)));
+
+        List<Object[]> args = new ArrayList<>(batch.size());
+        for (Map.Entry<Long, PendingUpdate> entry : batch) {
+            PendingUpdate update = entry.getValue();
+            args.add(new Object[]{update.name(), update.weightInKilos(), entry.getKey(), update.baseVersion()});
+        }
+
+        long start = System.nanoTime();
+        int[] counts;
+        try {
+            counts = transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(UPDATE_SQL, args));
+        } catch (RuntimeException e) {
+            failed.increment(batch.size());
+            log.error("Write-behind flush of {} fruit updates failed, retrying on the next flush", batch.size(), e);
+            return;
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        flushSize.record(batch.size());
+
+        reconcileLock.writeLock().lock();
+        try {
+            reconcile(batch, counts);
+        } finally {
+            reconcileLock.writeLock().unlock();
+        }
+    }
+
+    private void reconcile(List<Map.Entry<Long, PendingUpdate>> batch, int[] counts) {
+        for (int i = 0; i < batch.size(); i++) {
+            Long id = batch.get(i).getKey();
+            PendingUpdate flushed = batch.get(i).getValue();
+            // H2 reports the row count of every batched statement
+            boolean applied = counts == null || counts[i] != 0;
+            (applied ? written : stale).increment();
+            fruitCache.invalidate(id);
+            fruitResponseCache.invalidate(id);
+            if (applied) {
+                fruitEvents.updated(response(id, flushed));
+                // An update coalesced during the flush now applies on top of the version just written.
+                pending.computeIfPresent(id, (key, current) -> current == flushed ? null
+                        : new PendingUpdate(current.name(), current.weightInKilos(), flushed.baseVersion() + 1));
+            } else {
+                // One coalesced during the flush was buffered against the same version and would fail
+                // every later flush, so it is dropped as well.
+                PendingUpdate dropped = pending.remove(id);
+                if (dropped != null && dropped != flushed) {
+                    stale.increment();
+                }
+                log.warn("Write-behind update of fruit {} dropped: the row changed after it was buffered", id);
+            }
+        }
+    }
+
+    @PreDestroy
+    void close() throws InterruptedException {
+        closed = true;
+        if (flusher != null) {
+            flusher.shutdown();
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        flush();
+    }
+}
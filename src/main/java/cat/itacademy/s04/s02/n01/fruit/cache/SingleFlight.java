@@ -0,0 +1,72 @@
+package cat.itacademy.s04.s02.n01.fruit.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Runs at most one load per key at a time: callers that arrive while a load is running wait for it
+ * and get its result, {@code null} (not found) and exceptions included. Nothing is kept once the load
+ * completes. Inside a transaction the caller loads on its own, because the load would see that
+ * transaction's uncommitted writes.
+ */
+final class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter loaded;
+    private final Counter collapsed;
+
+    SingleFlight(MeterRegistry meterRegistry, String name) {
+        this.loaded = Counter.builder("fruit.loads")
+                .description("Loads run, and loads avoided by joining one already running for the same id")
+                .tag("name", name)
+                .tag("result", "loaded")
+                .register(meterRegistry);
+        this.collapsed = Counter.builder("fruit.loads")
+                .description("Loads run, and loads avoided by joining one already running for the same id")
+                .tag("name", name)
+                .tag("result", "collapsed")
+                .register(meterRegistry);
+    }
+
+    V load(K key, Function<K, V> loader) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            loaded.increment();
+            return loader.apply(key);
+        }
+
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, load);
+        if (running != null) {
+            collapsed.increment();
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        loaded.increment();
+        try {
+            V value = loader.apply(key);
+            load.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, load);
+        }
+    }
+
+    // Callers that arrive after a write start a new load instead of joining one that may have read
+    // the row before it; the running load still completes for those already waiting on it.
+    void forget(K key) {
+        inFlight.remove(key);
+    }
+}
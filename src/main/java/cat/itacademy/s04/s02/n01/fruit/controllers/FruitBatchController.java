@@ -0,0 +1,38 @@
+package cat.itacademy.s04.s02.n01.fruit.controllers;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.BatchResponseDTO;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitBatchUpdateDTO;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitRequestDTO;
+import cat.itacademy.s04.s02.n01.fruit.service.FruitBatchService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/fruits/batch")
+@Profile("!reactive & !memory")
+@RequiredArgsConstructor
+public class FruitBatchController {
+
+    private final FruitBatchService fruitBatchService;
+
+    @PostMapping
+    public ResponseEntity<BatchResponseDTO> createFruits(
+            @RequestBody List<FruitRequestDTO> requests) {
+        return ResponseEntity.ok(fruitBatchService.createFruits(requests));
+    }
+
+    @PutMapping
+    public ResponseEntity<BatchResponseDTO> updateFruits(
+            @RequestBody List<FruitBatchUpdateDTO> requests) {
+        return ResponseEntity.ok(fruitBatchService.updateFruits(requests));
+    }
+
+    @DeleteMapping
+    public ResponseEntity<BatchResponseDTO> deleteFruits(@RequestBody List<Long> ids) {
+        return ResponseEntity.ok(fruitBatchService.deleteFruits(ids));
+    }
+}
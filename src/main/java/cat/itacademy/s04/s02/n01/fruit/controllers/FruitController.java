@@ -1,53 +1,218 @@
 package cat.itacademy.s04.s02.n01.fruit.controllers;
 
+import cat.itacademy.s04.s02.n01.fruit.cache.FruitIdempotencyStore;
+import cat.itacademy.s04.s02.n01.fruit.cache.FruitResponseCache;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitFilter;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitPage;
 import cat.itacademy.s04.s02.n01.fruit.dto.FruitRequestDTO;
 import cat.itacademy.s04.s02.n01.fruit.dto.FruitResponseDTO;
+import cat.itacademy.s04.s02.n01.fruit.exceptions.ErrorResponse;
+import cat.itacademy.s04.s02.n01.fruit.exceptions.FruitNotFoundException;
+import cat.itacademy.s04.s02.n01.fruit.metrics.FruitErrorMetrics;
 import cat.itacademy.s04.s02.n01.fruit.service.FruitService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
 @RequestMapping("/fruits")
+@Profile("!reactive")
 @RequiredArgsConstructor
 public class FruitController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+
+    private static final MediaType SMILE = MediaType.parseMediaType(WireFormatConfig.APPLICATION_SMILE_VALUE);
+
     private final FruitService fruitService;
+    private final ObjectMapper objectMapper;
+    private final FruitResponseCache fruitResponseCache;
+    private final FruitErrorMetrics errorMetrics;
+    private final FruitIdempotencyStore idempotencyStore;
 
     @PostMapping
-    public ResponseEntity<FruitResponseDTO> createFruit(
+    public ResponseEntity<?> createFruit(
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
             @Valid @RequestBody FruitRequestDTO request) {
-        FruitResponseDTO response = fruitService.createFruit(request);
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        if (idempotencyKey == null) {
+            FruitResponseDTO response = fruitService.createFruit(request);
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            errorMetrics.record(HttpStatus.BAD_REQUEST, "validation");
+            return ResponseEntity.badRequest().body(ErrorResponse.of(HttpStatus.BAD_REQUEST,
+                    IDEMPOTENCY_KEY_HEADER + " must be 1 to " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters"));
+        }
+
+        FruitIdempotencyStore.Result result = idempotencyStore.create(idempotencyKey, request,
+                () -> fruitService.createFruit(request));
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.CREATED);
+        if (result.replayed()) {
+            response.header(IDEMPOTENT_REPLAYED_HEADER, "true");
+        }
+        return response.body(result.fruit());
     }
 
     @GetMapping
-    public ResponseEntity<List<FruitResponseDTO>> getAllFruits() {
-        List<FruitResponseDTO> fruits = fruitService.getAllFruits();
-        return ResponseEntity.ok(fruits);
+    public ResponseEntity<List<FruitResponseDTO>> getAllFruits(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String namePrefix,
+            @RequestParam(required = false) @Min(1) Integer minWeight,
+            @RequestParam(required = false) @Min(1) Integer maxWeight,
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) @Min(1) Integer limit) {
+        FruitFilter filter = new FruitFilter(name, namePrefix, minWeight, maxWeight);
+        FruitPage page = fruitService.getFruitPage(filter, after, limit);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT);
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor().toString());
+        }
+        return response.body(page.fruits());
+    }
+
+    @GetMapping(value = "/stream",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public void streamFruits(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            HttpServletResponse response) throws IOException {
+        boolean ndjson = accept != null && accept.contains(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setContentType(ndjson
+                ? MediaType.APPLICATION_NDJSON_VALUE
+                : MediaType.APPLICATION_JSON_VALUE);
+
+        ObjectWriter writer = objectMapper.writerFor(FruitResponseDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        try (JsonGenerator generator = objectMapper.getFactory()
+                .createGenerator(response.getOutputStream())) {
+            generator.setRootValueSeparator(null);
+            if (!ndjson) {
+                generator.writeStartArray();
+            }
+            fruitService.streamAllFruits(fruit -> {
+                try {
+                    writer.writeValue(generator, fruit);
+                    if (ndjson) {
+                        generator.writeRaw('\n');
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            if (!ndjson) {
+                generator.writeEndArray();
+            }
+        }
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<FruitResponseDTO> getFruitById(@PathVariable Long id) {
-        FruitResponseDTO fruit = fruitService.getFruitById(id);
-        return ResponseEntity.ok(fruit);
+    public ResponseEntity<?> getFruitById(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // The cached bytes are JSON; a caller asking for CBOR or Smile goes through the converters.
+        if (fruitResponseCache.isEnabled() && !acceptsBinary(accept)) {
+            FruitResponseCache.CachedResponse cached = fruitResponseCache.get(id, fruitService::findFruitById);
+            if (cached == null) {
+                return fruitNotFound(id);
+            }
+            if (cached.matches(ifNoneMatch)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(cached.etag()).build();
+            }
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .eTag(cached.etag())
+                    .body(cached.body());
+        }
+
+        return fruitService.findFruitById(id)
+                .<ResponseEntity<?>>map(fruit -> {
+                    if (FruitResponseCache.etagMatches(ifNoneMatch, fruit.etag())) {
+                        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(fruit.etag()).build();
+                    }
+                    return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).eTag(fruit.etag()).body(fruit);
+                })
+                .orElseGet(() -> fruitNotFound(id));
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<FruitResponseDTO> updateFruit(
+    public ResponseEntity<?> updateFruit(
             @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @Valid @RequestBody FruitRequestDTO request) {
-        FruitResponseDTO response = fruitService.updateFruit(id, request);
-        return ResponseEntity.ok(response);
+        return fruitService.updateFruit(id, request, expectedVersion(ifMatch))
+                .<ResponseEntity<?>>map(fruit -> ResponseEntity.ok().eTag(fruit.etag()).body(fruit))
+                .orElseGet(() -> fruitNotFound(id));
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteFruit(@PathVariable Long id) {
-        fruitService.deleteFruit(id);
+    public ResponseEntity<?> deleteFruit(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (!fruitService.deleteFruit(id, expectedVersion(ifMatch))) {
+            return fruitNotFound(id);
+        }
         return ResponseEntity.noContent().build();
     }
+
+    // ETags are the quoted row version. "*" (or no header) means any current version; a tag that is
+    // not a version can never match, so it maps to -1 and ends in 412 for an existing fruit.
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        try {
+            return Long.parseLong(tag.replace("\"", ""));
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    static boolean acceptsBinary(String accept) {
+        if (accept == null) {
+            return false;
+        }
+        try {
+            return MediaType.parseMediaTypes(accept).stream()
+                    .filter(type -> type.getQualityValue() > 0)
+                    .anyMatch(type -> type.equalsTypeAndSubtype(MediaType.APPLICATION_CBOR)
+                            || type.equalsTypeAndSubtype(SMILE));
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+
+    // Missing ids are answered here rather than by throwing FruitNotFoundException: an exception
+    // leaving a handler method is wrapped in an InvocationTargetException, which captures a full stack.
+    private ResponseEntity<ErrorResponse> fruitNotFound(Long id) {
+        errorMetrics.record(HttpStatus.NOT_FOUND, "not_found");
+        ErrorResponse error = ErrorResponse.of(HttpStatus.NOT_FOUND, FruitNotFoundException.messageFor(id));
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+    }
 }
@@ -0,0 +1,71 @@
+package cat.itacademy.s04.s02.n01.fruit.controllers;
+
+import cat.itacademy.s04.s02.n01.fruit.events.FruitEvent;
+import cat.itacademy.s04.s02.n01.fruit.events.FruitEventBroadcaster;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+@RestController
+@RequestMapping("/fruits")
+@Profile("!reactive")
+public class FruitEventController {
+
+    public static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+
+    private final FruitEventBroadcaster broadcaster;
+    private final long timeoutMillis;
+
+    public FruitEventController(FruitEventBroadcaster broadcaster,
+                                @Value("${fruit.events.timeout:30m}") Duration timeout) {
+        this.broadcaster = broadcaster;
+        this.timeoutMillis = timeout.toMillis();
+    }
+
+    /**
+     * Server-sent events for every created, updated and deleted fruit. The stream ends after
+     * {@code fruit.events.timeout}; browsers reconnect with {@code Last-Event-ID} and miss nothing
+     * that is still in the history.
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events(@RequestHeader(value = LAST_EVENT_ID_HEADER, required = false) Long lastEventId)
+            throws IOException {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        // Commits the response right away, so clients know they are subscribed before the first change
+        emitter.send(SseEmitter.event().comment("connected"));
+        Runnable unsubscribe = broadcaster.subscribe(new EmitterSink(emitter), lastEventId);
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(error -> unsubscribe.run());
+        return emitter;
+    }
+
+    private record EmitterSink(SseEmitter emitter) implements FruitEventBroadcaster.Sink {
+
+        @Override
+        public void send(FruitEvent event) throws IOException {
+            emitter.send(SseEmitter.event()
+                    .id(Long.toString(event.id()))
+                    .name(event.type().eventName())
+                    .data(event.data(), MediaType.APPLICATION_JSON));
+        }
+
+        @Override
+        public void heartbeat() throws IOException {
+            emitter.send(SseEmitter.event().comment("heartbeat"));
+        }
+
+        @Override
+        public void close() {
+            emitter.complete();
+        }
+    }
+}
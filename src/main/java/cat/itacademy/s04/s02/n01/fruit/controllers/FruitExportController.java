@@ -0,0 +1,78 @@
+package cat.itacademy.s04.s02.n01.fruit.controllers;
+
+import cat.itacademy.s04.s02.n01.fruit.service.FruitExportService;
+import cat.itacademy.s04.s02.n01.fruit.service.FruitFileFormat;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.constraints.Pattern;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.Locale;
+
+@RestController
+@RequestMapping("/fruits/export")
+@Profile("!reactive & !memory")
+@RequiredArgsConstructor
+public class FruitExportController {
+
+    private final FruitExportService fruitExportService;
+
+    @GetMapping
+    public void exportFruits(
+            @RequestParam(defaultValue = "ndjson")
+            @Pattern(regexp = "(?i)ndjson|csv", message = "The format must be ndjson or csv.") String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response) throws IOException {
+        FruitFileFormat fileFormat = FruitFileFormat.valueOf(format.toUpperCase(Locale.ROOT));
+        boolean gzip = acceptsGzip(acceptEncoding);
+
+        response.setContentType(fileFormat.mediaType().toString());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"fruits." + format.toLowerCase(Locale.ROOT) + "\"");
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        fruitExportService.export(fileFormat, gzip, response.getOutputStream());
+    }
+
+    // gzip (or x-gzip) with a q-value above 0, or else "*" with one; "gzip;q=0" refuses it.
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double any = null;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            double quality = quality(parts);
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzip = gzip == null ? quality : Math.max(gzip, quality);
+            } else if (coding.equals("*")) {
+                any = quality;
+            }
+        }
+        Double accepted = gzip != null ? gzip : any;
+        return accepted != null && accepted > 0;
+    }
+
+    private static double quality(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
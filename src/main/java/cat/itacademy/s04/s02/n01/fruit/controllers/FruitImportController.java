@@ -0,0 +1,37 @@
+package cat.itacademy.s04.s02.n01.fruit.controllers;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.ImportResponseDTO;
+import cat.itacademy.s04.s02.n01.fruit.service.FruitFileFormat;
+import cat.itacademy.s04.s02.n01.fruit.service.FruitImportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@RestController
+@RequestMapping("/fruits/import")
+@Profile("!reactive & !memory")
+@RequiredArgsConstructor
+public class FruitImportController {
+
+    private final FruitImportService fruitImportService;
+
+    // The body is read straight from the request stream; it is never bound to a list.
+    @PostMapping(consumes = {MediaType.APPLICATION_NDJSON_VALUE, "text/csv"})
+    public ResponseEntity<ImportResponseDTO> importFruits(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body) throws IOException {
+        FruitFileFormat format = contentType.isCompatibleWith(FruitFileFormat.NDJSON.mediaType())
+                ? FruitFileFormat.NDJSON
+                : FruitFileFormat.CSV;
+        return ResponseEntity.ok(fruitImportService.importFruits(body, format));
+    }
+}
@@ -0,0 +1,42 @@
+package cat.itacademy.s04.s02.n01.fruit.controllers;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitNameStatsDTO;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitResponseDTO;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitTotalsDTO;
+import cat.itacademy.s04.s02.n01.fruit.service.FruitStatsService;
+import jakarta.validation.constraints.Min;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/fruits/stats")
+@Profile("!reactive & !memory")
+@RequiredArgsConstructor
+public class FruitStatsController {
+
+    private final FruitStatsService fruitStatsService;
+
+    @GetMapping
+    public ResponseEntity<FruitTotalsDTO> getTotals() {
+        return ResponseEntity.ok(fruitStatsService.getTotals());
+    }
+
+    @GetMapping("/by-name")
+    public ResponseEntity<List<FruitNameStatsDTO>> getStatsByName(
+            @RequestParam(required = false) @Min(1) Integer limit) {
+        return ResponseEntity.ok(fruitStatsService.getStatsByName(limit));
+    }
+
+    @GetMapping("/heaviest")
+    public ResponseEntity<List<FruitResponseDTO>> getHeaviestFruits(
+            @RequestParam(required = false) @Min(1) Integer limit) {
+        return ResponseEntity.ok(fruitStatsService.getHeaviestFruits(limit));
+    }
+}
@@ -0,0 +1,113 @@
+package cat.itacademy.s04.s02.n01.fruit.controllers;
+
+import cat.itacademy.s04.s02.n01.fruit.cache.FruitResponseCache;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitFilter;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitRequestDTO;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitResponseDTO;
+import cat.itacademy.s04.s02.n01.fruit.exceptions.FruitNotFoundException;
+import cat.itacademy.s04.s02.n01.fruit.service.ReactiveFruitService;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static cat.itacademy.s04.s02.n01.fruit.controllers.FruitController.NEXT_CURSOR_HEADER;
+
+/**
+ * The {@link FruitController} contract on WebFlux and R2DBC ({@code reactive} profile). Errors are
+ * signalled as exceptions and rendered by {@code GlobalExceptionHandler}, so bodies are identical.
+ */
+@RestController
+@RequestMapping("/fruits")
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveFruitController {
+
+    private final ReactiveFruitService fruitService;
+
+    @PostMapping
+    public Mono<ResponseEntity<FruitResponseDTO>> createFruit(
+            @Valid @RequestBody FruitRequestDTO request) {
+        return fruitService.createFruit(request)
+                .map(fruit -> ResponseEntity.status(HttpStatus.CREATED).body(fruit));
+    }
+
+    /**
+     * The page is read in full before it is written, because the next cursor goes out as a header
+     * and is the last id of the rows read. A page holds at most {@code fruit.pagination.max-limit} rows.
+     */
+    @GetMapping
+    public Mono<ResponseEntity<List<FruitResponseDTO>>> getAllFruits(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String namePrefix,
+            @RequestParam(required = false) @Min(1) Integer minWeight,
+            @RequestParam(required = false) @Min(1) Integer maxWeight,
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) @Min(1) Integer limit) {
+        FruitFilter filter = new FruitFilter(name, namePrefix, minWeight, maxWeight);
+        int pageSize = fruitService.pageSize(limit);
+        return fruitService.getFruitPage(filter, after, pageSize)
+                .map(page -> {
+                    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+                    if (page.nextCursor() != null) {
+                        response.header(NEXT_CURSOR_HEADER, page.nextCursor().toString());
+                    }
+                    return response.body(page.fruits());
+                });
+    }
+
+    @GetMapping(value = "/stream",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<FruitResponseDTO> streamFruits() {
+        return fruitService.streamAllFruits();
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<FruitResponseDTO>> getFruitById(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return fruitService.findFruitById(id)
+                .map(fruit -> {
+                    if (FruitResponseCache.etagMatches(ifNoneMatch, fruit.etag())) {
+                        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(fruit.etag()).<FruitResponseDTO>build();
+                    }
+                    return ResponseEntity.ok().eTag(fruit.etag()).body(fruit);
+                })
+                .switchIfEmpty(fruitNotFound(id));
+    }
+
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<FruitResponseDTO>> updateFruit(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @Valid @RequestBody FruitRequestDTO request) {
+        return fruitService.updateFruit(id, request, FruitController.expectedVersion(ifMatch))
+                .map(fruit -> ResponseEntity.ok().eTag(fruit.etag()).body(fruit))
+                .switchIfEmpty(fruitNotFound(id));
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> deleteFruit(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return fruitService.deleteFruit(id, FruitController.expectedVersion(ifMatch))
+                .flatMap(deleted -> deleted
+                        ? Mono.just(ResponseEntity.noContent().<Void>build())
+                        : fruitNotFound(id));
+    }
+
+    // No stack is captured (see FruitNotFoundException), so signalling the error costs no more than
+    // building the 404 here.
+    private static <T> Mono<T> fruitNotFound(Long id) {
+        return Mono.error(() -> new FruitNotFoundException(FruitNotFoundException.messageFor(id)));
+    }
+}
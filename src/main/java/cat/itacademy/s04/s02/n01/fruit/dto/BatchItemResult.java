@@ -0,0 +1,4 @@
+package cat.itacademy.s04.s02.n01.fruit.dto;
+
+public record BatchItemResult(int index, Long id, int status, String message) {
+}
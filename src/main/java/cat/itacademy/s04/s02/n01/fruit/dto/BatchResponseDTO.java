@@ -0,0 +1,13 @@
+package cat.itacademy.s04.s02.n01.fruit.dto;
+
+import java.util.List;
+
+public record BatchResponseDTO(int succeeded, int failed, List<BatchItemResult> results) {
+
+    public static BatchResponseDTO of(List<BatchItemResult> results) {
+        int succeeded = (int) results.stream()
+                .filter(result -> result.status() < 400)
+                .count();
+        return new BatchResponseDTO(succeeded, results.size() - succeeded, results);
+    }
+}
@@ -0,0 +1,23 @@
+package cat.itacademy.s04.s02.n01.fruit.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class FruitBatchUpdateDTO {
+
+    @NotNull(message = "The id cannot be empty.")
+    private Long id;
+
+    @NotBlank(message = "The name cannot be empty.")
+    private String name;
+
+    @Positive(message = "The weight must be greater than 0.")
+    private int weightInKilos;
+}
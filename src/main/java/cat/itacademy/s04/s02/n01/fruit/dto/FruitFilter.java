@@ -0,0 +1,10 @@
+package cat.itacademy.s04.s02.n01.fruit.dto;
+
+public record FruitFilter(String name, String namePrefix, Integer minWeight, Integer maxWeight) {
+
+    public static final FruitFilter NONE = new FruitFilter(null, null, null, null);
+
+    public boolean isEmpty() {
+        return name == null && namePrefix == null && minWeight == null && maxWeight == null;
+    }
+}
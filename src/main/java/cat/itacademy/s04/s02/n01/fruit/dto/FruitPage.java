@@ -0,0 +1,6 @@
+package cat.itacademy.s04.s02.n01.fruit.dto;
+
+import java.util.List;
+
+public record FruitPage(List<FruitResponseDTO> fruits, Long nextCursor) {
+}
@@ -1,5 +1,7 @@
 package cat.itacademy.s04.s02.n01.fruit.dto;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
@@ -9,4 +11,19 @@ public class FruitResponseDTO {
     private Long id;
     private String name;
     private int weightInKilos;
-}
\ No newline at end of file
+
+    /**
+     * Row version, exposed to clients only as the {@code ETag} header; {@code null} when unknown.
+     */
+    @JsonIgnore
+    private Long version;
+
+    @JsonCreator
+    public FruitResponseDTO(Long id, String name, int weightInKilos) {
+        this(id, name, weightInKilos, null);
+    }
+
+    public String etag() {
+        return version == null ? null : "\"" + version + "\"";
+    }
+}
@@ -0,0 +1,4 @@
+package cat.itacademy.s04.s02.n01.fruit.dto;
+
+public record FruitTotalsDTO(long count, long totalWeightInKilos) {
+}
@@ -0,0 +1,11 @@
+package cat.itacademy.s04.s02.n01.fruit.dto;
+
+import java.util.List;
+
+/**
+ * Outcome of a streamed import. {@code errors} holds the first rejected lines (their
+ * {@code index} is the 1-based line number); {@code failed} counts all of them.
+ */
+public record ImportResponseDTO(long lines, long imported, long failed,
+                                List<BatchItemResult> errors, boolean errorsTruncated) {
+}
@@ -0,0 +1,20 @@
+package cat.itacademy.s04.s02.n01.fruit.events;
+
+import java.util.Locale;
+
+/**
+ * One change sent on {@code GET /fruits/events}. {@code id} is the SSE event id (increasing, and a
+ * valid {@code Last-Event-ID} to resume from); {@code data} is the JSON payload, serialized once for
+ * all subscribers. A {@link Type#RESET} tells the client that events were dropped and it has to reload
+ * with {@code GET /fruits}.
+ */
+public record FruitEvent(long id, Type type, long fruitId, String data, long publishedNanos) {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED, RESET;
+
+        public String eventName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package cat.itacademy.s04.s02.n01.fruit.events;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitResponseDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fans fruit changes out to the {@code GET /fruits/events} subscribers without ever blocking the
+ * request that made the change.
+ * <p>
+ * Publishing only appends to a bounded ring of recent events (the history {@code Last-Event-ID}
+ * resumes from) and wakes the dispatcher thread, which hands each event to every subscriber. A
+ * subscriber buffers what it has not sent yet, one entry per fruit id: a slow consumer gets the latest
+ * change of each fruit rather than every intermediate one. Buffers are written out by a virtual
+ * thread per subscriber, so a stalled connection only holds up itself. When a buffer would exceed
+ * {@code max-pending} fruits, or a resume point is older than the history, the subscriber gets a
+ * {@code reset} event instead and reloads.
+ */
+@Slf4j
+@Component
+public class FruitEventBroadcaster {
+
+    /**
+     * Where a subscriber's events are written, e.g. an {@code SseEmitter}. Called from one thread at
+     * a time per subscriber; an exception unsubscribes it.
+     */
+    public interface Sink {
+        void send(FruitEvent event) throws IOException;
+
+        void heartbeat() throws IOException;
+
+        void close();
+    }
+
+    private static final long RESET_KEY = 0L; // fruit ids start at 1
+
+    private final ObjectWriter writer;
+    private final FruitEvent[] history;
+    private final int maxPending;
+    private final long heartbeatNanos;
+    private final ReentrantLock publishLock = new ReentrantLock();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private volatile Thread dispatcher;
+    private volatile boolean running = true;
+
+    // Above any id handed out before a restart, so an old Last-Event-ID reads as expired.
+    private final long firstId = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()) + 1;
+    private long lastId = firstId - 1;
+    private volatile long published = lastId;
+
+    private final Counter publishedEvents;
+    private final Counter coalesced;
+    private final Counter overflowResets;
+    private final Counter expiredResets;
+    private final Timer delivery;
+
+    public FruitEventBroadcaster(ObjectMapper objectMapper,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${fruit.events.history:10000}") int history,
+                                 @Value("${fruit.events.max-pending:1000}") int maxPending,
+                                 @Value("${fruit.events.heartbeat:15s}") Duration heartbeat) {
+        this.writer = objectMapper.writer();
+        this.history = new FruitEvent[history];
+        this.maxPending = maxPending;
+        this.heartbeatNanos = heartbeat.toNanos();
+
+        Gauge.builder("fruit.events.subscribers", subscribers, Set::size)
+                .description("Connected GET /fruits/events clients")
+                .register(meterRegistry);
+        this.publishedEvents = Counter.builder("fruit.events.published").register(meterRegistry);
+        this.coalesced = Counter.builder("fruit.events.coalesced")
+                .description("Events replaced by a newer one for the same fruit before being sent")
+                .register(meterRegistry);
+        this.overflowResets = Counter.builder("fruit.events.resets").tag("reason", "overflow").register(meterRegistry);
+        this.expiredResets = Counter.builder("fruit.events.resets").tag("reason", "expired").register(meterRegistry);
+        this.delivery = Timer.builder("fruit.events.delivery")
+                .description("Time from publishing an event to writing it to a subscriber")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    // Started once the bean is fully built, not from the constructor.
+    @PostConstruct
+    void start() {
+        dispatcher = Thread.ofPlatform().name("fruit-events").daemon().start(this::dispatch);
+    }
+
+    public void created(FruitResponseDTO fruit) {
+        publish(FruitEvent.Type.CREATED, fruit.getId(), fruit);
+    }
+
+    public void updated(FruitResponseDTO fruit) {
+        publish(FruitEvent.Type.UPDATED, fruit.getId(), fruit);
+    }
+
+    public void deleted(Long id) {
+        publish(FruitEvent.Type.DELETED, id, new FruitResponseDTO(id, null, 0));
+    }
+
+    // Inside a transaction the event is only published once it has committed.
+    private void publish(FruitEvent.Type type, long fruitId, FruitResponseDTO fruit) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    append(type, fruitId, fruit);
+                }
+            });
+        } else {
+            append(type, fruitId, fruit);
+        }
+    }
+
+    private void append(FruitEvent.Type type, long fruitId, FruitResponseDTO fruit) {
+        String data = type == FruitEvent.Type.DELETED ? "{\"id\":" + fruitId + "}" : toJson(fruit);
+        publishLock.lock();
+        try {
+            long id = ++lastId;
+            history[slot(id)] = new FruitEvent(id, type, fruitId, data, System.nanoTime());
+            published = id;
+        } finally {
+            publishLock.unlock();
+        }
+        publishedEvents.increment();
+        LockSupport.unpark(dispatcher);
+    }
+
+    private String toJson(FruitResponseDTO fruit) {
+        try {
+            return writer.writeValueAsString(fruit);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int slot(long id) {
+        return (int) Math.floorMod(id, (long) history.length);
+    }
+
+    private FruitEvent reset(long id) {
+        return new FruitEvent(id, FruitEvent.Type.RESET, RESET_KEY, "{}", System.nanoTime());
+    }
+
+    /**
+     * Starts sending events to {@code sink}: those after {@code lastEventId} still in the history first
+     * (or a reset if some are gone), then live ones. Returns the action that unsubscribes it.
+     */
+    public Runnable subscribe(Sink sink, Long lastEventId) {
+        Subscriber subscriber;
+        publishLock.lock();
+        try {
+            long current = lastId;
+            subscriber = new Subscriber(sink, current);
+            if (lastEventId != null && lastEventId != current) {
+                long oldest = Math.max(current - history.length + 1, firstId);
+                if (lastEventId < oldest - 1 || lastEventId > current) {
+                    subscriber.pending.put(RESET_KEY, reset(current));
+                    expiredResets.increment();
+                } else {
+                    for (long id = lastEventId + 1; id <= current; id++) {
+                        subscriber.buffer(history[slot(id)]);
+                    }
+                }
+            }
+            subscribers.add(subscriber);
+        } finally {
+            publishLock.unlock();
+        }
+        subscriber.wake();
+        return () -> unsubscribe(subscriber);
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            subscriber.closed = true;
+            subscriber.sink.close();
+        }
+    }
+
+    private void dispatch() {
+        // Not the current value of published: events may already have come in before this thread ran.
+        long dispatched = firstId - 1;
+        long nextHeartbeat = System.nanoTime() + heartbeatNanos;
+        while (running) {
+            long target = published;
+            if (target == dispatched) {
+                long now = System.nanoTime();
+                if (now - nextHeartbeat >= 0) {
+                    subscribers.forEach(Subscriber::heartbeat);
+                    nextHeartbeat = now + heartbeatNanos;
+                }
+                LockSupport.parkNanos(this, nextHeartbeat - now);
+                continue;
+            }
+            for (long id = dispatched + 1; id <= target; id++) {
+                FruitEvent event = history[slot(id)];
+                if (event == null || event.id() != id) {
+                    // Publishers lapped the dispatcher: the events in between are gone.
+                    FruitEvent reset = reset(target);
+                    subscribers.forEach(subscriber -> subscriber.overflow(reset));
+                    break;
+                }
+                for (Subscriber subscriber : subscribers) {
+                    subscriber.offer(event);
+                }
+            }
+            dispatched = target;
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        running = false;
+        LockSupport.unpark(dispatcher);
+        subscribers.forEach(this::unsubscribe);
+        senders.shutdownNow();
+    }
+
+    private final class Subscriber {
+
+        private final Sink sink;
+        private final long startAfter;
+        private final ReentrantLock lock = new ReentrantLock();
+        private LinkedHashMap<Long, FruitEvent> pending = new LinkedHashMap<>();
+        private boolean heartbeatDue;
+        private boolean draining;
+        private volatile boolean closed;
+
+        Subscriber(Sink sink, long startAfter) {
+            this.sink = sink;
+            this.startAfter = startAfter;
+        }
+
+        void offer(FruitEvent event) {
+            // Anything up to startAfter was already taken from the history when subscribing.
+            if (event.id() <= startAfter || closed) {
+                return;
+            }
+            lock.lock();
+            try {
+                buffer(event);
+            } finally {
+                lock.unlock();
+            }
+            wake();
+        }
+
+        // Moved to the end on every change, so events go out in id order and a client resuming from
+        // the last id it saw misses nothing.
+        void buffer(FruitEvent event) {
+            if (pending.remove(event.fruitId()) != null) {
+                coalesced.increment();
+            }
+            if (pending.size() >= maxPending) {
+                pending.clear();
+                pending.put(RESET_KEY, reset(event.id()));
+                overflowResets.increment();
+            } else {
+                pending.put(event.fruitId(), event);
+            }
+        }
+
+        void overflow(FruitEvent reset) {
+            lock.lock();
+            try {
+                pending.clear();
+                pending.put(RESET_KEY, reset);
+                overflowResets.increment();
+            } finally {
+                lock.unlock();
+            }
+            wake();
+        }
+
+        void heartbeat() {
+            lock.lock();
+            try {
+                heartbeatDue = true;
+            } finally {
+                lock.unlock();
+            }
+            wake();
+        }
+
+        void wake() {
+            lock.lock();
+            try {
+                if (draining || closed || pending.isEmpty() && !heartbeatDue) {
+                    return;
+                }
+                draining = true;
+            } finally {
+                lock.unlock();
+            }
+            senders.execute(this::drain);
+        }
+
+        private void drain() {
+            while (true) {
+                LinkedHashMap<Long, FruitEvent> batch;
+                boolean heartbeat;
+                lock.lock();
+                try {
+                    if (closed || pending.isEmpty() && !heartbeatDue) {
+                        draining = false;
+                        return;
+                    }
+                    batch = pending;
+                    pending = new LinkedHashMap<>();
+                    heartbeat = heartbeatDue && batch.isEmpty();
+                    heartbeatDue = false;
+                } finally {
+                    lock.unlock();
+                }
+                try {
+                    for (FruitEvent event : batch.values()) {
+                        sink.send(event);
+                        delivery.record(System.nanoTime() - event.publishedNanos(), TimeUnit.NANOSECONDS);
+                    }
+                    if (heartbeat) {
+                        sink.heartbeat();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    log.debug("Dropping fruit event subscriber", e);
+                    unsubscribe(this);
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -2,6 +2,8 @@ package cat.itacademy.s04.s02.n01.fruit.exceptions;
 
 import lombok.AllArgsConstructor;
 import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
 import java.time.LocalDateTime;
 
 @Getter
@@ -10,4 +12,8 @@ public class ErrorResponse {
     private int status;
     private String message;
     private LocalDateTime timestamp;
+
+    public static ErrorResponse of(HttpStatus status, String message) {
+        return new ErrorResponse(status.value(), message, LocalDateTime.now());
+    }
 }
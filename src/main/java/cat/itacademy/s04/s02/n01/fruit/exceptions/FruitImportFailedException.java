@@ -0,0 +1,21 @@
+package cat.itacademy.s04.s02.n01.fruit.exceptions;
+
+import lombok.Getter;
+
+/**
+ * The database rejected a chunk of {@code POST /fruits/import}. The chunks before it stay committed;
+ * {@code imported} says how many fruits they held and {@code lines} how far the body was read.
+ */
+@Getter
+public class FruitImportFailedException extends RuntimeException {
+
+    private final long lines;
+    private final long imported;
+
+    public FruitImportFailedException(long lines, long imported, Throwable cause) {
+        super("Import stopped at line " + lines + ": the database rejected the chunk in progress. "
+                + imported + " fruits from earlier chunks were committed", cause, false, false);
+        this.lines = lines;
+        this.imported = imported;
+    }
+}
@@ -2,6 +2,10 @@ package cat.itacademy.s04.s02.n01.fruit.exceptions;
 
 public class FruitNotFoundException extends RuntimeException {
     public FruitNotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
+    }
+
+    public static String messageFor(Long id) {
+        return "Fruit not found with id: " + id;
     }
 }
@@ -0,0 +1,7 @@
+package cat.itacademy.s04.s02.n01.fruit.exceptions;
+
+public class FruitVersionConflictException extends RuntimeException {
+    public FruitVersionConflictException(Long id) {
+        super("Fruit with id " + id + " has been modified; the If-Match version does not match", null, false, false);
+    }
+}
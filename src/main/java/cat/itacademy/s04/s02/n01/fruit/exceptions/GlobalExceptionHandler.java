@@ -1,18 +1,25 @@
 package cat.itacademy.s04.s02.n01.fruit.exceptions;
 
+import cat.itacademy.s04.s02.n01.fruit.metrics.FruitErrorMetrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.MessageSourceResolvable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.method.annotation.HandlerMethodValidationException;
 
-import java.time.LocalDateTime;
 import java.util.stream.Collectors;
 
 @RestControllerAdvice
+@RequiredArgsConstructor
 public class GlobalExceptionHandler {
 
+    private final FruitErrorMetrics errorMetrics;
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ErrorResponse> handleValidationErrors(
             MethodArgumentNotValidException ex) {
@@ -21,11 +28,36 @@ public class GlobalExceptionHandler {
                 .map(FieldError::getDefaultMessage)
                 .collect(Collectors.joining(", "));
 
-        ErrorResponse error = new ErrorResponse(
-                HttpStatus.BAD_REQUEST.value(),
-                message,
-                LocalDateTime.now()
-        );
+        errorMetrics.record(HttpStatus.BAD_REQUEST, "validation");
+        ErrorResponse error = ErrorResponse.of(HttpStatus.BAD_REQUEST, message);
+
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+    }
+
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<ErrorResponse> handleReactiveValidationErrors(
+            WebExchangeBindException ex) {
+
+        String message = ex.getBindingResult().getFieldErrors().stream()
+                .map(FieldError::getDefaultMessage)
+                .collect(Collectors.joining(", "));
+
+        errorMetrics.record(HttpStatus.BAD_REQUEST, "validation");
+        ErrorResponse error = ErrorResponse.of(HttpStatus.BAD_REQUEST, message);
+
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+    }
+
+    @ExceptionHandler(HandlerMethodValidationException.class)
+    public ResponseEntity<ErrorResponse> handleParameterValidationErrors(
+            HandlerMethodValidationException ex) {
+
+        String message = ex.getAllErrors().stream()
+                .map(MessageSourceResolvable::getDefaultMessage)
+                .collect(Collectors.joining(", "));
+
+        errorMetrics.record(HttpStatus.BAD_REQUEST, "validation");
+        ErrorResponse error = ErrorResponse.of(HttpStatus.BAD_REQUEST, message);
 
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
     }
@@ -34,12 +66,40 @@ public class GlobalExceptionHandler {
     public ResponseEntity<ErrorResponse> handleFruitNotFound(
             FruitNotFoundException ex) {
 
-        ErrorResponse error = new ErrorResponse(
-                HttpStatus.NOT_FOUND.value(),
-                ex.getMessage(),
-                LocalDateTime.now()
-        );
+        errorMetrics.record(HttpStatus.NOT_FOUND, "not_found");
+        ErrorResponse error = ErrorResponse.of(HttpStatus.NOT_FOUND, ex.getMessage());
 
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
     }
-}
\ No newline at end of file
+
+    @ExceptionHandler(FruitVersionConflictException.class)
+    public ResponseEntity<ErrorResponse> handleVersionConflict(
+            FruitVersionConflictException ex) {
+
+        errorMetrics.record(HttpStatus.PRECONDITION_FAILED, "version_conflict");
+        ErrorResponse error = ErrorResponse.of(HttpStatus.PRECONDITION_FAILED, ex.getMessage());
+
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(error);
+    }
+
+    @ExceptionHandler(FruitImportFailedException.class)
+    public ResponseEntity<ErrorResponse> handleImportFailed(
+            FruitImportFailedException ex) {
+
+        errorMetrics.record(HttpStatus.INTERNAL_SERVER_ERROR, "import_failed");
+        ErrorResponse error = new ImportErrorResponse(HttpStatus.INTERNAL_SERVER_ERROR, ex.getMessage(),
+                ex.getLines(), ex.getImported());
+
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+    }
+
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<ErrorResponse> handleIdempotencyKeyReused(
+            IdempotencyKeyReusedException ex) {
+
+        errorMetrics.record(HttpStatus.UNPROCESSABLE_ENTITY, "idempotency_key_reused");
+        ErrorResponse error = ErrorResponse.of(HttpStatus.UNPROCESSABLE_ENTITY, ex.getMessage());
+
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(error);
+    }
+}
@@ -0,0 +1,7 @@
+package cat.itacademy.s04.s02.n01.fruit.exceptions;
+
+public class IdempotencyKeyReusedException extends RuntimeException {
+    public IdempotencyKeyReusedException(String key) {
+        super("Idempotency-Key " + key + " was already used with a different request body", null, false, false);
+    }
+}
@@ -0,0 +1,23 @@
+package cat.itacademy.s04.s02.n01.fruit.exceptions;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * {@link ErrorResponse} of an import that failed part-way, with the lines read and the fruits
+ * committed before the failure, so a client knows where to resume.
+ */
+@Getter
+public class ImportErrorResponse extends ErrorResponse {
+
+    private final long lines;
+    private final long imported;
+
+    public ImportErrorResponse(HttpStatus status, String message, long lines, long imported) {
+        super(status.value(), message, LocalDateTime.now());
+        this.lines = lines;
+        this.imported = imported;
+    }
+}
@@ -19,7 +19,8 @@ public class FruitMapper {
         return new FruitResponseDTO(
                 entity.getId(),
                 entity.getName(),
-                entity.getWeightInKilos()
+                entity.getWeightInKilos(),
+                entity.getVersion()
         );
     }
 }
@@ -0,0 +1,26 @@
+package cat.itacademy.s04.s02.n01.fruit.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts error responses ({@code fruit.errors}) by status and reason.
+ */
+@Component
+@RequiredArgsConstructor
+public class FruitErrorMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    public void record(HttpStatus status, String reason) {
+        Counter.builder("fruit.errors")
+                .description("Error responses by status and reason")
+                .tag("status", String.valueOf(status.value()))
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+}
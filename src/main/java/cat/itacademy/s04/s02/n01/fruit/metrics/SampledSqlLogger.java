@@ -0,0 +1,27 @@
+package cat.itacademy.s04.s02.n01.fruit.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Logs a random sample of the SQL Hibernate prepares, replacing the always-on {@code spring.jpa.show-sql}.
+ */
+@Slf4j(topic = "fruit.sql")
+public class SampledSqlLogger implements StatementInspector {
+
+    private final double sampleRate;
+
+    public SampledSqlLogger(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        if (ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            log.info(sql);
+        }
+        return sql;
+    }
+}
@@ -1,24 +1,44 @@
 package cat.itacademy.s04.s02.n01.fruit.model;
 
 import jakarta.persistence.*;
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 @Entity
-@Table(name = "fruits")
+@Table(name = "fruits", indexes = {
+        @Index(name = "idx_fruits_name_key", columnList = "name_key, id"),
+        @Index(name = "idx_fruits_weight", columnList = "weight_in_kilos, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
-@AllArgsConstructor
 public class Fruit {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "fruit_seq")
+    @SequenceGenerator(name = "fruit_seq", sequenceName = "fruit_seq", allocationSize = 50)
     private Long id;
 
     private String name;
 
     private int weightInKilos;
-}
\ No newline at end of file
+
+    @Version
+    private Long version;
+
+    /**
+     * Lower-cased {@link #name}, maintained by the database so case-insensitive searches can use an index.
+     */
+    @Setter(AccessLevel.NONE)
+    @Column(name = "name_key", insertable = false, updatable = false,
+            columnDefinition = "varchar(255) generated always as (lower(name))")
+    private String nameKey;
+
+    public Fruit(Long id, String name, int weightInKilos) {
+        this.id = id;
+        this.name = name;
+        this.weightInKilos = weightInKilos;
+    }
+}
@@ -0,0 +1,76 @@
+package cat.itacademy.s04.s02.n01.fruit.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Reads the whole fruits table through a forward-only JDBC cursor, one row at a time, without
+ * entities or DTOs, for {@code GET /fruits/stream} and {@code GET /fruits/export}. H2 builds a
+ * complete result before returning the first row unless lazy query execution is on, so it is
+ * switched on for the cursor's session and off again afterwards.
+ * A lazy result is read while the table keeps changing, so outside a caller's transaction the
+ * cursor runs in its own repeatable-read one: it keeps the snapshot it started from, and H2 keeps
+ * the pages that snapshot needs (in autocommit it could drop them mid-read, "Chunk not found").
+ */
+@Repository
+@Profile("!memory")
+@RequiredArgsConstructor
+public class FruitCursor {
+
+    static final String SELECT_ALL = "SELECT id, name, weight_in_kilos FROM fruits ORDER BY id";
+
+    @FunctionalInterface
+    public interface RowHandler {
+        void row(long id, String name, int weightInKilos);
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${fruit.export.fetch-size:1000}")
+    private int fetchSize;
+
+    public long forEach(RowHandler handler) {
+        Long rows = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            boolean ownTransaction = connection.getAutoCommit();
+            int isolation = connection.getTransactionIsolation();
+            if (ownTransaction) {
+                connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+                connection.setAutoCommit(false);
+            }
+            try (Statement session = connection.createStatement()) {
+                session.execute("SET LAZY_QUERY_EXECUTION 1");
+            }
+            try (PreparedStatement select = connection.prepareStatement(SELECT_ALL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                select.setFetchSize(fetchSize);
+                long count = 0;
+                try (ResultSet resultSet = select.executeQuery()) {
+                    while (resultSet.next()) {
+                        handler.row(resultSet.getLong(1), resultSet.getString(2), resultSet.getInt(3));
+                        count++;
+                    }
+                }
+                return count;
+            } finally {
+                try (Statement session = connection.createStatement()) {
+                    session.execute("SET LAZY_QUERY_EXECUTION 0");
+                }
+                if (ownTransaction) {
+                    connection.commit();
+                    connection.setAutoCommit(true);
+                    connection.setTransactionIsolation(isolation);
+                }
+            }
+        });
+        return rows == null ? 0 : rows;
+    }
+}
@@ -0,0 +1,279 @@
+package cat.itacademy.s04.s02.n01.fruit.repository;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Persistence for {@link FruitMemoryStore}: a full snapshot file plus append-only journals of the
+ * changes made since, each journal a fixed-size memory-mapped file. Journals are numbered; the
+ * snapshot records the first journal that is not already contained in it, so recovery is "load the
+ * snapshot, replay every journal from that number on". Not thread-safe: the store calls
+ * {@link #put}, {@link #delete} and {@link #rotate} under its write lock. Only {@link #force} may run
+ * alongside them.
+ */
+@Slf4j
+final class FruitMemoryJournal implements AutoCloseable {
+
+    interface Replay {
+        void put(long id, String name, int weightInKilos, long version);
+
+        void delete(long id);
+    }
+
+    private static final int SNAPSHOT_MAGIC = 0x46525431; // "FRT1"
+    private static final byte END = 0;
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final Pattern JOURNAL_NAME = Pattern.compile("fruits\\.(\\d+)\\.journal");
+
+    private final Path dir;
+    private final int journalSize;
+
+    private long sequence;
+    private FileChannel channel;
+    private volatile MappedByteBuffer buffer;
+    private boolean dirty;
+
+    FruitMemoryJournal(Path dir, int journalSize) throws IOException {
+        this.dir = Files.createDirectories(dir);
+        this.journalSize = journalSize;
+    }
+
+    private Path snapshotFile() {
+        return dir.resolve("fruits.snapshot");
+    }
+
+    private Path journalFile(long sequence) {
+        return dir.resolve("fruits." + sequence + ".journal");
+    }
+
+    /**
+     * Loads the snapshot and replays the journals after it. Returns the highest id ever issued.
+     * Call {@link #rotate} and {@link #writeSnapshot} afterwards to start writing again.
+     */
+    long recover(Replay replay) throws IOException {
+        long firstJournal = 0;
+        long lastId = 0;
+        if (Files.exists(snapshotFile())) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    Files.newInputStream(snapshotFile()), 1 << 16))) {
+                if (in.readInt() != SNAPSHOT_MAGIC) {
+                    throw new IOException("Not a fruit snapshot: " + snapshotFile());
+                }
+                firstJournal = in.readLong();
+                lastId = in.readLong();
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    long id = in.readLong();
+                    long version = in.readLong();
+                    int weight = in.readInt();
+                    byte[] name = new byte[in.readInt()];
+                    in.readFully(name);
+                    replay.put(id, new String(name, StandardCharsets.UTF_8), weight, version);
+                }
+            }
+        }
+
+        sequence = Math.max(firstJournal - 1, 0);
+        for (long journal : journalSequences()) {
+            if (journal >= firstJournal) {
+                lastId = Math.max(lastId, replay(journal, replay));
+            }
+            sequence = Math.max(sequence, journal);
+        }
+        return lastId;
+    }
+
+    private long replay(long journal, Replay replay) throws IOException {
+        long lastId = 0;
+        int replayed = 0;
+        try (FileChannel in = FileChannel.open(journalFile(journal), StandardOpenOption.READ)) {
+            MappedByteBuffer records = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            while (records.hasRemaining()) {
+                byte type = records.get();
+                if (type == END) {
+                    break;
+                }
+                long id = records.getLong();
+                if (id <= 0) {
+                    break;
+                }
+                if (type == PUT) {
+                    long version = records.getLong();
+                    int weight = records.getInt();
+                    int length = records.getInt();
+                    if (length < 0 || length > records.remaining()) {
+                        break;
+                    }
+                    byte[] name = new byte[length];
+                    records.get(name);
+                    replay.put(id, new String(name, StandardCharsets.UTF_8), weight, version);
+                } else if (type == DELETE) {
+                    replay.delete(id);
+                } else {
+                    break;
+                }
+                lastId = Math.max(lastId, id);
+                replayed++;
+            }
+        } catch (BufferUnderflowException e) {
+            // torn last record: everything before it has been applied
+        }
+        log.info("Replayed {} records from {}", replayed, journalFile(journal));
+        return lastId;
+    }
+
+    private List<Long> journalSequences() throws IOException {
+        List<Long> sequences = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(file -> {
+                Matcher matcher = JOURNAL_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    sequences.add(Long.parseLong(matcher.group(1)));
+                }
+            });
+        }
+        sequences.sort(null);
+        return sequences;
+    }
+
+    void put(long id, String name, int weightInKilos, long version) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int payload = Long.BYTES * 2 + Integer.BYTES * 2 + bytes.length;
+        int position = reserve(payload);
+        MappedByteBuffer records = buffer;
+        records.position(position + 1);
+        records.putLong(id).putLong(version).putInt(weightInKilos).putInt(bytes.length).put(bytes);
+        // The type goes in last, so a record is only visible to replay once it is complete.
+        records.put(position, PUT);
+    }
+
+    void delete(long id) {
+        int position = reserve(Long.BYTES);
+        MappedByteBuffer records = buffer;
+        records.position(position + 1);
+        records.putLong(id);
+        records.put(position, DELETE);
+    }
+
+    // Start of a record of 1 + payload bytes, moving to a new journal when this one is full.
+    private int reserve(int payload) {
+        if (payload + 1 > journalSize) {
+            throw new IllegalArgumentException("Journal record of " + payload + " bytes exceeds the journal size");
+        }
+        if (buffer.remaining() < payload + 1) {
+            rotate();
+        }
+        dirty = true;
+        return buffer.position();
+    }
+
+    boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Switches to a new, empty journal and returns its number. Changes from here on are not part of
+     * a snapshot taken of the current state.
+     */
+    long rotate() {
+        try {
+            FileChannel next = FileChannel.open(journalFile(sequence + 1),
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer nextBuffer = next.map(FileChannel.MapMode.READ_WRITE, 0, journalSize);
+            closeJournal();
+            sequence++;
+            channel = next;
+            buffer = nextBuffer;
+            dirty = false;
+            return sequence;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the rows as the new snapshot (atomically replacing the old one) and deletes the journals
+     * it makes redundant. Runs without the store lock: the rows are a copy taken together with
+     * {@link #rotate}, which returned {@code firstJournal}.
+     */
+    void writeSnapshot(long firstJournal, long lastId, long[] ids, long[] versions, int[] weights, String[] names)
+            throws IOException {
+        Path temporary = dir.resolve("fruits.snapshot.tmp");
+        try (FileChannel file = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            OutputStream stream = Channels.newOutputStream(file);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(firstJournal);
+            out.writeLong(lastId);
+            out.writeInt(ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                byte[] name = names[i].getBytes(StandardCharsets.UTF_8);
+                out.writeLong(ids[i]);
+                out.writeLong(versions[i]);
+                out.writeInt(weights[i]);
+                out.writeInt(name.length);
+                out.write(name);
+            }
+            out.flush();
+            file.force(true);
+        }
+        Files.move(temporary, snapshotFile(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        for (long journal : journalSequences()) {
+            if (journal < firstJournal) {
+                Files.deleteIfExists(journalFile(journal));
+            }
+        }
+    }
+
+    /**
+     * Forces the current journal's pages to disk. Records are already safe from a process crash once
+     * written to the mapping; this covers a machine crash. Safe to call while records are appended:
+     * it only syncs the mapped pages and leaves the buffer's position alone. Racing {@link #rotate} it
+     * may sync the previous journal instead, which stays mapped while referenced and which
+     * {@code rotate} forces anyway.
+     */
+    void force() {
+        MappedByteBuffer current = buffer;
+        if (current != null) {
+            current.force();
+        }
+    }
+
+    private void closeJournal() throws IOException {
+        if (channel != null) {
+            buffer.force();
+            channel.close();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeJournal();
+        channel = null;
+        buffer = null;
+    }
+}
@@ -0,0 +1,619 @@
+package cat.itacademy.s04.s02.n01.fruit.repository;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitFilter;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitResponseDTO;
+import cat.itacademy.s04.s02.n01.fruit.exceptions.FruitVersionConflictException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Primary fruit store of the {@code memory} profile. Rows live in parallel primitive arrays kept in id
+ * order (ids only grow, so inserts append), with an open-addressing {@code long -> slot} index for
+ * lookups by id and names interned once. One writer at a time; lookups by id are optimistic reads that
+ * take no lock, scans share a read lock.
+ * <p>
+ * With a {@code fruit.memory.data-dir} every change is appended to a memory-mapped journal and the
+ * whole table is snapshotted every {@code snapshot-interval} and on shutdown; see
+ * {@link FruitMemoryJournal}. Inside a Spring transaction a change is journaled on commit and undone
+ * on rollback (other threads can see it before that: there is no isolation).
+ */
+@Slf4j
+@Repository
+@Profile("memory")
+public class FruitMemoryStore {
+
+    private static final long DELETED = -1L;
+    private static final int MIN_CAPACITY = 1024;
+
+    private final StampedLock lock = new StampedLock();
+    private final AtomicLong lastId = new AtomicLong();
+    private final FruitMemoryJournal journal;
+    private final ScheduledExecutorService persister;
+    private final Timer snapshotTimer;
+    private final MeterRegistry meterRegistry;
+    private final String dataDir;
+    private final Duration snapshotInterval;
+    private final Duration syncInterval;
+
+    // Replaced as a whole on growth and compaction; optimistic readers check their bounds.
+    private long[] ids;
+    private int[] weights;
+    private int[] nameRefs;
+    private long[] versions;
+    private int size;
+    private int live;
+    private SlotIndex index;
+    private NameTable names = new NameTable();
+
+    public FruitMemoryStore(MeterRegistry meterRegistry,
+                            @Value("${fruit.memory.data-dir:}") String dataDir,
+                            @Value("${fruit.memory.journal-size:16MB}") DataSize journalSize,
+                            @Value("${fruit.memory.snapshot-interval:1m}") Duration snapshotInterval,
+                            @Value("${fruit.memory.sync-interval:1s}") Duration syncInterval) throws IOException {
+        this.meterRegistry = meterRegistry;
+        this.dataDir = dataDir;
+        this.snapshotInterval = snapshotInterval;
+        this.syncInterval = syncInterval;
+        allocate(MIN_CAPACITY);
+        this.snapshotTimer = Timer.builder("fruit.memory.snapshot").register(meterRegistry);
+
+        if (dataDir == null || dataDir.isBlank()) {
+            this.journal = null;
+            this.persister = null;
+            return;
+        }
+        this.journal = new FruitMemoryJournal(Path.of(dataDir), Math.toIntExact(journalSize.toBytes()));
+        this.persister = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                .name("fruit-memory-persister").daemon().factory());
+    }
+
+    // Recovery, the gauge and the persister all hand out this store, so they wait until it is fully built.
+    @PostConstruct
+    void open() throws IOException {
+        Gauge.builder("fruit.memory.fruits", this, store -> store.live)
+                .description("Fruits held by the in-memory store")
+                .register(meterRegistry);
+        if (journal == null) {
+            return;
+        }
+
+        lastId.set(journal.recover(new FruitMemoryJournal.Replay() {
+            @Override
+            public void put(long id, String name, int weightInKilos, long version) {
+                restore(id, name, weightInKilos, version);
+            }
+
+            @Override
+            public void delete(long id) {
+                remove(id);
+            }
+        }));
+        log.info("Loaded {} fruits from {}", live, dataDir);
+        snapshot();
+
+        long sync = syncInterval.toMillis();
+        persister.scheduleWithFixedDelay(this::force, sync, sync, TimeUnit.MILLISECONDS);
+        long interval = snapshotInterval.toMillis();
+        persister.scheduleWithFixedDelay(this::snapshotIfDirty, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public FruitResponseDTO insert(String name, int weightInKilos) {
+        boolean inTransaction = TransactionSynchronizationManager.isSynchronizationActive();
+        long id;
+        long stamp = lock.writeLock();
+        try {
+            // Taken under the lock, so that inserts reach the arrays in id order and append.
+            id = lastId.incrementAndGet();
+            restore(id, name, weightInKilos, 0L);
+            if (!inTransaction) {
+                journalRow(id);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        if (inTransaction) {
+            recordUndo(id, null);
+        }
+        return new FruitResponseDTO(id, name, weightInKilos, 0L);
+    }
+
+    public FruitResponseDTO find(long id) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            FruitResponseDTO fruit = readRow(id);
+            if (lock.validate(stamp)) {
+                return fruit;
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return readRow(id);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Under an optimistic read the arrays can change under us, so every access is bounds-checked
+    // and the result is thrown away unless the stamp still validates.
+    private FruitResponseDTO readRow(long id) {
+        int slot = index.get(id);
+        long[] rowIds = ids;
+        long[] rowVersions = versions;
+        int[] rowWeights = weights;
+        int[] rowNames = nameRefs;
+        String[] nameValues = names.values;
+        if (slot < 0 || slot >= rowIds.length || slot >= rowVersions.length || slot >= rowWeights.length
+                || slot >= rowNames.length) {
+            return null;
+        }
+        long version = rowVersions[slot];
+        int ref = rowNames[slot];
+        if (rowIds[slot] != id || version == DELETED || ref < 0 || ref >= nameValues.length) {
+            return null;
+        }
+        String name = nameValues[ref];
+        return name == null ? null : new FruitResponseDTO(id, name, rowWeights[slot], version);
+    }
+
+    /**
+     * Up to {@code limit} fruits matching {@code filter} with ids above {@code after}, in id order.
+     */
+    public List<FruitResponseDTO> findPage(FruitFilter filter, Long after, int limit) {
+        long stamp = lock.readLock();
+        try {
+            boolean[] nameMatches = names.matching(filter);
+            int min = filter.minWeight() == null ? Integer.MIN_VALUE : filter.minWeight();
+            int max = filter.maxWeight() == null ? Integer.MAX_VALUE : filter.maxWeight();
+            List<FruitResponseDTO> fruits = new ArrayList<>(Math.min(limit, 256));
+            int slot = after == null ? 0 : firstSlotAfter(after);
+            for (; slot < size && fruits.size() < limit; slot++) {
+                int weight = weights[slot];
+                if (versions[slot] == DELETED || weight < min || weight > max
+                        || nameMatches != null && !nameMatches[nameRefs[slot]]) {
+                    continue;
+                }
+                fruits.add(new FruitResponseDTO(ids[slot], names.values[nameRefs[slot]], weight, versions[slot]));
+            }
+            return fruits;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private int firstSlotAfter(long after) {
+        int slot = Arrays.binarySearch(ids, 0, size, after);
+        return slot >= 0 ? slot + 1 : -slot - 1;
+    }
+
+    /**
+     * The updated fruit, or {@code null} when it does not exist. With an {@code expectedVersion} the
+     * fruit is only changed if it still has that version, otherwise {@link FruitVersionConflictException}.
+     */
+    public FruitResponseDTO update(long id, String name, int weightInKilos, Long expectedVersion) {
+        boolean inTransaction = TransactionSynchronizationManager.isSynchronizationActive();
+        FruitResponseDTO before;
+        long version;
+        long stamp = lock.writeLock();
+        try {
+            before = readRow(id);
+            if (before == null) {
+                return null;
+            }
+            if (expectedVersion != null && before.getVersion() != expectedVersion.longValue()) {
+                throw new FruitVersionConflictException(id);
+            }
+            version = before.getVersion() + 1;
+            restore(id, name, weightInKilos, version);
+            if (!inTransaction) {
+                journalRow(id);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        if (inTransaction) {
+            recordUndo(id, before);
+        }
+        return new FruitResponseDTO(id, name, weightInKilos, version);
+    }
+
+    /**
+     * {@code false} when the fruit does not exist; {@link FruitVersionConflictException} as for
+     * {@link #update}.
+     */
+    public boolean delete(long id, Long expectedVersion) {
+        boolean inTransaction = TransactionSynchronizationManager.isSynchronizationActive();
+        FruitResponseDTO before;
+        long stamp = lock.writeLock();
+        try {
+            before = readRow(id);
+            if (before == null) {
+                return false;
+            }
+            if (expectedVersion != null && before.getVersion() != expectedVersion.longValue()) {
+                throw new FruitVersionConflictException(id);
+            }
+            remove(id);
+            if (!inTransaction) {
+                journalRow(id);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        if (inTransaction) {
+            recordUndo(id, before);
+        }
+        return true;
+    }
+
+    private void recordUndo(long id, FruitResponseDTO before) {
+        UndoLog undoLog = (UndoLog) TransactionSynchronizationManager.getResource(this);
+        if (undoLog == null) {
+            undoLog = new UndoLog();
+            TransactionSynchronizationManager.bindResource(this, undoLog);
+            TransactionSynchronizationManager.registerSynchronization(undoLog);
+        }
+        undoLog.ids.add(id);
+        undoLog.before.add(before);
+    }
+
+    /**
+     * The rows a transaction changed, each with its state before the change ({@code null}: it did not
+     * exist). On commit they are journaled as they stand; on rollback they are put back, last change first.
+     */
+    private final class UndoLog implements TransactionSynchronization {
+
+        private final List<Long> ids = new ArrayList<>();
+        private final List<FruitResponseDTO> before = new ArrayList<>();
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(FruitMemoryStore.this);
+            long stamp = lock.writeLock();
+            try {
+                if (status == STATUS_COMMITTED) {
+                    new LinkedHashSet<>(ids).forEach(FruitMemoryStore.this::journalRow);
+                    return;
+                }
+                for (int i = ids.size() - 1; i >= 0; i--) {
+                    FruitResponseDTO row = before.get(i);
+                    if (row == null) {
+                        remove(ids.get(i));
+                    } else {
+                        restore(row.getId(), row.getName(), row.getWeightInKilos(), row.getVersion());
+                    }
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    private void journalRow(long id) {
+        if (journal == null) {
+            return;
+        }
+        int slot = index.get(id);
+        if (slot < 0 || versions[slot] == DELETED) {
+            journal.delete(id);
+        } else {
+            journal.put(id, names.values[nameRefs[slot]], weights[slot], versions[slot]);
+        }
+    }
+
+    // Inserts or overwrites the row; callers hold the write lock (or are the constructor).
+    private void restore(long id, String name, int weightInKilos, long version) {
+        int slot = index.get(id);
+        if (slot < 0) {
+            slot = insertSlot(id);
+            live++;
+        }
+        weights[slot] = weightInKilos;
+        nameRefs[slot] = names.intern(name);
+        versions[slot] = version;
+    }
+
+    private int insertSlot(long id) {
+        if (size == ids.length) {
+            rebuild(Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(live, 1)) * 4));
+        }
+        int found = size == 0 || ids[size - 1] < id ? -size - 1 : Arrays.binarySearch(ids, 0, size, id);
+        if (found >= 0) {
+            // a deleted slot still holding the id
+            index.put(id, found);
+            return found;
+        }
+        int slot = -found - 1;
+        if (slot < size) {
+            // Ids are handed out in order under the write lock; only a rolled-back delete, or replaying
+            // transactions that committed out of id order, brings back an id below the last one.
+            int tail = size - slot;
+            System.arraycopy(ids, slot, ids, slot + 1, tail);
+            System.arraycopy(weights, slot, weights, slot + 1, tail);
+            System.arraycopy(nameRefs, slot, nameRefs, slot + 1, tail);
+            System.arraycopy(versions, slot, versions, slot + 1, tail);
+            for (int moved = slot + 1; moved <= size; moved++) {
+                if (versions[moved] != DELETED) {
+                    index.put(ids[moved], moved);
+                }
+            }
+        }
+        ids[slot] = id;
+        versions[slot] = DELETED;
+        size++;
+        index.put(id, slot);
+        return slot;
+    }
+
+    private void remove(long id) {
+        int slot = index.get(id);
+        if (slot < 0) {
+            return;
+        }
+        versions[slot] = DELETED;
+        index.remove(id);
+        live--;
+        if (size >= MIN_CAPACITY && live < size / 2) {
+            rebuild(Math.max(MIN_CAPACITY, ids.length));
+        }
+    }
+
+    private void allocate(int capacity) {
+        ids = new long[capacity];
+        weights = new int[capacity];
+        nameRefs = new int[capacity];
+        versions = new long[capacity];
+        index = new SlotIndex(capacity * 2);
+        size = 0;
+    }
+
+    // Copies the live rows into fresh arrays, dropping deleted slots and names no longer used.
+    private void rebuild(int capacity) {
+        long[] oldIds = ids;
+        int[] oldWeights = weights;
+        int[] oldNames = nameRefs;
+        long[] oldVersions = versions;
+        int oldSize = size;
+        NameTable oldNameTable = names;
+
+        allocate(capacity);
+        names = new NameTable();
+        for (int slot = 0; slot < oldSize; slot++) {
+            if (oldVersions[slot] == DELETED) {
+                continue;
+            }
+            ids[size] = oldIds[slot];
+            weights[size] = oldWeights[slot];
+            nameRefs[size] = names.intern(oldNameTable.values[oldNames[slot]]);
+            versions[size] = oldVersions[slot];
+            index.put(oldIds[slot], size);
+            size++;
+        }
+    }
+
+    // Without the store lock: writers keep appending to the mapping while its pages are synced.
+    private void force() {
+        try {
+            journal.force();
+        } catch (RuntimeException e) {
+            log.error("Could not sync the fruit journal", e);
+        }
+    }
+
+    private void snapshotIfDirty() {
+        try {
+            if (journal.isDirty()) {
+                snapshot();
+            }
+        } catch (RuntimeException e) {
+            log.error("Fruit snapshot failed; the journals are kept", e);
+        }
+    }
+
+    /**
+     * Copies the live rows and switches to a new journal under the write lock, then writes the copy
+     * without holding it.
+     */
+    public void snapshot() {
+        if (journal == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        long firstJournal;
+        long[] snapshotIds;
+        long[] snapshotVersions;
+        int[] snapshotWeights;
+        String[] snapshotNames;
+        long stamp = lock.writeLock();
+        try {
+            firstJournal = journal.rotate();
+            snapshotIds = new long[live];
+            snapshotVersions = new long[live];
+            snapshotWeights = new int[live];
+            snapshotNames = new String[live];
+            int row = 0;
+            for (int slot = 0; slot < size; slot++) {
+                if (versions[slot] != DELETED) {
+                    snapshotIds[row] = ids[slot];
+                    snapshotVersions[row] = versions[slot];
+                    snapshotWeights[row] = weights[slot];
+                    snapshotNames[row] = names.values[nameRefs[slot]];
+                    row++;
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        try {
+            journal.writeSnapshot(firstJournal, lastId.get(), snapshotIds, snapshotVersions, snapshotWeights,
+                    snapshotNames);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            snapshotTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @PreDestroy
+    void close() throws IOException, InterruptedException {
+        if (journal == null) {
+            return;
+        }
+        persister.shutdown();
+        persister.awaitTermination(10, TimeUnit.SECONDS);
+        snapshot();
+        long stamp = lock.writeLock();
+        try {
+            journal.close();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Open addressing with linear probing from id to slot, sized to stay at most half full so a miss
+     * ends at an empty key within a few probes. Ids are positive, so 0 marks a free key and -1 a removed one.
+     */
+    private static final class SlotIndex {
+
+        private static final long FREE = 0L;
+        private static final long REMOVED = -1L;
+
+        private final long[] keys;
+        private final int[] slots;
+        private final int mask;
+
+        SlotIndex(int capacity) {
+            int tableSize = Integer.highestOneBit(capacity - 1) << 1;
+            this.keys = new long[tableSize];
+            this.slots = new int[tableSize];
+            this.mask = tableSize - 1;
+        }
+
+        private static int hash(long id) {
+            long h = id * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        int get(long id) {
+            long[] table = keys;
+            int[] values = slots;
+            int position = hash(id) & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                long key = table[position];
+                if (key == id) {
+                    return values[position];
+                }
+                if (key == FREE) {
+                    return -1;
+                }
+                position = (position + 1) & mask;
+            }
+            return -1;
+        }
+
+        void put(long id, int slot) {
+            int position = hash(id) & mask;
+            int reusable = -1;
+            for (int probes = 0; probes <= mask; probes++) {
+                long key = keys[position];
+                if (key == id) {
+                    slots[position] = slot;
+                    return;
+                }
+                if (key == REMOVED && reusable < 0) {
+                    reusable = position;
+                } else if (key == FREE) {
+                    break;
+                }
+                position = (position + 1) & mask;
+            }
+            int target = reusable >= 0 ? reusable : position;
+            slots[target] = slot;
+            keys[target] = id;
+        }
+
+        void remove(long id) {
+            int position = hash(id) & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                long key = keys[position];
+                if (key == id) {
+                    keys[position] = REMOVED;
+                    return;
+                }
+                if (key == FREE) {
+                    return;
+                }
+                position = (position + 1) & mask;
+            }
+        }
+    }
+
+    /**
+     * Each distinct name is stored once and rows refer to it by position. Filters on the name are
+     * resolved against this (usually small) table first, so the row scan only compares ints.
+     */
+    private static final class NameTable {
+
+        private final Map<String, Integer> refs = new HashMap<>();
+        private String[] values = new String[16];
+        private String[] keys = new String[16];
+        private int count;
+
+        int intern(String name) {
+            Integer ref = refs.get(name);
+            if (ref != null) {
+                return ref;
+            }
+            if (count == values.length) {
+                String[] grownValues = Arrays.copyOf(values, count * 2);
+                keys = Arrays.copyOf(keys, count * 2);
+                values = grownValues;
+            }
+            keys[count] = FruitSpecifications.normalize(name);
+            values[count] = name;
+            refs.put(name, count);
+            return count++;
+        }
+
+        // null when the filter does not look at the name
+        boolean[] matching(FruitFilter filter) {
+            if (filter.name() == null && filter.namePrefix() == null) {
+                return null;
+            }
+            String name = filter.name() == null ? null : FruitSpecifications.normalize(filter.name());
+            String prefix = filter.namePrefix() == null ? null : FruitSpecifications.normalize(filter.namePrefix());
+            boolean[] matches = new boolean[count];
+            for (int ref = 0; ref < count; ref++) {
+                matches[ref] = (name == null || keys[ref].equals(name))
+                        && (prefix == null || keys[ref].startsWith(prefix));
+            }
+            return matches;
+        }
+    }
+}
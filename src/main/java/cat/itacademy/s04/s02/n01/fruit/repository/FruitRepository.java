@@ -1,10 +1,60 @@
 package cat.itacademy.s04.s02.n01.fruit.repository;
 
 
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitNameStatsDTO;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitResponseDTO;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitTotalsDTO;
 import cat.itacademy.s04.s02.n01.fruit.model.Fruit;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
-public interface FruitRepository extends JpaRepository<Fruit, Long> {
+public interface FruitRepository
+        extends JpaRepository<Fruit, Long>, JpaSpecificationExecutor<Fruit>, FruitRepositoryCustom {
+
+    String RESPONSE =
+            "new cat.itacademy.s04.s02.n01.fruit.dto.FruitResponseDTO(f.id, f.name, f.weightInKilos, f.version)";
+
+    @Query("select " + RESPONSE + " from Fruit f where f.id > :after order by f.id")
+    List<FruitResponseDTO> findResponsesAfter(@Param("after") long after, Limit limit);
+
+    @Query("select " + RESPONSE + " from Fruit f where f.id = :id")
+    Optional<FruitResponseDTO> findResponseById(@Param("id") Long id);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Fruit f set f.name = :name, f.weightInKilos = :weight, f.version = f.version + 1 " +
+            "where f.id = :id and f.version = :version")
+    int updateByIdAndVersion(@Param("id") Long id, @Param("version") long version,
+                             @Param("name") String name, @Param("weight") int weightInKilos);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Fruit f where f.id = :id")
+    int deleteByIdReturningCount(@Param("id") Long id);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Fruit f where f.id = :id and f.version = :version")
+    int deleteByIdAndVersion(@Param("id") Long id, @Param("version") long version);
+
+    @Query("select f.id from Fruit f where f.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    @Query("select new cat.itacademy.s04.s02.n01.fruit.dto.FruitTotalsDTO(count(f), coalesce(sum(f.weightInKilos), 0)) " +
+            "from Fruit f")
+    FruitTotalsDTO findTotals();
+
+    @Query("select new cat.itacademy.s04.s02.n01.fruit.dto.FruitNameStatsDTO(f.name, count(f), sum(f.weightInKilos)) " +
+            "from Fruit f group by f.name order by sum(f.weightInKilos) desc, f.name")
+    List<FruitNameStatsDTO> findStatsByName(Limit limit);
+
+    @Query("select " + RESPONSE + " from Fruit f order by f.weightInKilos desc, f.id")
+    List<FruitResponseDTO> findHeaviest(Limit limit);
 }
@@ -0,0 +1,22 @@
+package cat.itacademy.s04.s02.n01.fruit.repository;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitResponseDTO;
+import cat.itacademy.s04.s02.n01.fruit.model.Fruit;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface FruitRepositoryCustom {
+
+    /**
+     * Selects the first {@code limit} fruits matching {@code spec}, ordered by id, straight into DTOs.
+     */
+    List<FruitResponseDTO> findResponses(Specification<Fruit> spec, int limit);
+
+    /**
+     * Updates the fruit and returns it with its new version, read back by the same statement
+     * (H2 {@code FINAL TABLE}), or empty when there is no fruit with {@code id}.
+     */
+    Optional<FruitResponseDTO> updateReturning(Long id, String name, int weightInKilos);
+}
@@ -0,0 +1,57 @@
+package cat.itacademy.s04.s02.n01.fruit.repository;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitResponseDTO;
+import cat.itacademy.s04.s02.n01.fruit.model.Fruit;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Optional;
+
+@RequiredArgsConstructor
+class FruitRepositoryImpl implements FruitRepositoryCustom {
+
+    private final EntityManager entityManager;
+
+    @Override
+    public List<FruitResponseDTO> findResponses(Specification<Fruit> spec, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<FruitResponseDTO> query = cb.createQuery(FruitResponseDTO.class);
+        Root<Fruit> root = query.from(Fruit.class);
+
+        query.select(cb.construct(FruitResponseDTO.class,
+                root.get("id"), root.get("name"), root.get("weightInKilos"), root.get("version")));
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(cb.asc(root.get("id")));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    // Flushed and cleared around the statement like the @Modifying updates of FruitRepository.
+    @Override
+    public Optional<FruitResponseDTO> updateReturning(Long id, String name, int weightInKilos) {
+        entityManager.flush();
+        List<?> rows = entityManager.createNativeQuery("SELECT id, name, weight_in_kilos, version FROM FINAL TABLE ("
+                        + "UPDATE fruits SET name = ?1, weight_in_kilos = ?2, version = version + 1 WHERE id = ?3)")
+                .setParameter(1, name)
+                .setParameter(2, weightInKilos)
+                .setParameter(3, id)
+                .getResultList();
+        entityManager.clear();
+        return rows.stream().findFirst().map(row -> {
+            Object[] columns = (Object[]) row;
+            return new FruitResponseDTO(((Number) columns[0]).longValue(), (String) columns[1],
+                    ((Number) columns[2]).intValue(), ((Number) columns[3]).longValue());
+        });
+    }
+}
@@ -0,0 +1,65 @@
+package cat.itacademy.s04.s02.n01.fruit.repository;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitFilter;
+import cat.itacademy.s04.s02.n01.fruit.model.Fruit;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Locale;
+
+/**
+ * Filters for {@code GET /fruits}. Names are compared on the indexed, lower-cased {@code nameKey}.
+ */
+public final class FruitSpecifications {
+
+    static final char LIKE_ESCAPE = '\\';
+
+    private FruitSpecifications() {
+    }
+
+    /**
+     * The id bound is only added after the first page: with {@code id > ?} present H2 prefers walking the
+     * primary key for range filters, which is what we want for later keyset pages but not for the first one.
+     */
+    public static Specification<Fruit> matching(FruitFilter filter, Long after) {
+        Specification<Fruit> spec = Specification.unrestricted();
+        if (after != null) {
+            spec = spec.and((root, query, cb) -> cb.greaterThan(root.get("id"), after));
+        }
+        if (filter.name() != null) {
+            spec = spec.and((root, query, cb) -> cb.equal(root.get("nameKey"), normalize(filter.name())));
+        }
+        if (filter.namePrefix() != null) {
+            spec = spec.and((root, query, cb) ->
+                    cb.like(root.get("nameKey"), escapeLike(normalize(filter.namePrefix())) + "%", LIKE_ESCAPE));
+        }
+        if (filter.minWeight() != null) {
+            spec = spec.and((root, query, cb) ->
+                    cb.greaterThanOrEqualTo(root.get("weightInKilos"), filter.minWeight()));
+        }
+        if (filter.maxWeight() != null) {
+            spec = spec.and((root, query, cb) ->
+                    cb.lessThanOrEqualTo(root.get("weightInKilos"), filter.maxWeight()));
+        }
+        return spec;
+    }
+
+    /**
+     * Whether a fruit with this name and weight matches {@code filter}, evaluated in memory the way
+     * {@link #matching} evaluates it in the database.
+     */
+    public static boolean matches(FruitFilter filter, String name, int weightInKilos) {
+        String key = name == null ? null : normalize(name);
+        return (filter.name() == null || normalize(filter.name()).equals(key))
+                && (filter.namePrefix() == null || (key != null && key.startsWith(normalize(filter.namePrefix()))))
+                && (filter.minWeight() == null || weightInKilos >= filter.minWeight())
+                && (filter.maxWeight() == null || weightInKilos <= filter.maxWeight());
+    }
+
+    static String normalize(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
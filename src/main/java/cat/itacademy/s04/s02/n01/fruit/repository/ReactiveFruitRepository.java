@@ -0,0 +1,167 @@
+package cat.itacademy.s04.s02.n01.fruit.repository;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitFilter;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitResponseDTO;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Readable;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * R2DBC counterpart of {@link FruitRepository} for the {@code reactive} profile. Same table, same
+ * statements as the JPA queries, but rows are mapped straight to {@link FruitResponseDTO}.
+ * <p>
+ * New ids are drawn from Hibernate's {@code fruit_seq} one value at a time, so they step by the
+ * sequence increment (50) instead of being handed out from a pooled block.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveFruitRepository {
+
+    private static final String COLUMNS = "id, name, weight_in_kilos, version";
+
+    private final DatabaseClient client;
+
+    public ReactiveFruitRepository(ConnectionFactory connectionFactory) {
+        this.client = DatabaseClient.create(connectionFactory);
+    }
+
+    public Mono<FruitResponseDTO> insert(String name, int weightInKilos) {
+        return client.sql("SELECT " + COLUMNS + " FROM FINAL TABLE ("
+                        + "INSERT INTO fruits (id, name, weight_in_kilos, version) "
+                        + "VALUES (NEXT VALUE FOR fruit_seq, :name, :weight, 0))")
+                .bind("name", name)
+                .bind("weight", weightInKilos)
+                .map(ReactiveFruitRepository::toResponse)
+                .one();
+    }
+
+    public Mono<FruitResponseDTO> findById(long id) {
+        return client.sql("SELECT " + COLUMNS + " FROM fruits WHERE id = :id")
+                .bind("id", id)
+                .map(ReactiveFruitRepository::toResponse)
+                .one();
+    }
+
+    public Mono<Boolean> existsById(long id) {
+        return client.sql("SELECT 1 FROM fruits WHERE id = :id")
+                .bind("id", id)
+                .map(row -> Boolean.TRUE)
+                .first()
+                .defaultIfEmpty(Boolean.FALSE);
+    }
+
+    /**
+     * One keyset page in id order. Rows are emitted as the driver produces them and only on demand.
+     */
+    public Flux<FruitResponseDTO> findPage(FruitFilter filter, Long after, int limit) {
+        Query query = Query.matching(filter, after);
+        return query.bindTo(client.sql("SELECT " + COLUMNS + " FROM fruits" + query.where
+                        + " ORDER BY id LIMIT :limit"))
+                .bind("limit", limit)
+                .map(ReactiveFruitRepository::toResponse)
+                .all();
+    }
+
+    public Flux<FruitResponseDTO> findAll() {
+        return client.sql("SELECT " + COLUMNS + " FROM fruits ORDER BY id")
+                .map(ReactiveFruitRepository::toResponse)
+                .all();
+    }
+
+    /**
+     * The fruit as updated, with its new version, or empty when there is no fruit with {@code id}.
+     */
+    public Mono<FruitResponseDTO> updateById(long id, String name, int weightInKilos) {
+        return client.sql("SELECT " + COLUMNS + " FROM FINAL TABLE ("
+                        + "UPDATE fruits SET name = :name, weight_in_kilos = :weight, version = version + 1 "
+                        + "WHERE id = :id)")
+                .bind("name", name)
+                .bind("weight", weightInKilos)
+                .bind("id", id)
+                .map(ReactiveFruitRepository::toResponse)
+                .one();
+    }
+
+    public Mono<Long> updateByIdAndVersion(long id, long version, String name, int weightInKilos) {
+        return client.sql("UPDATE fruits SET name = :name, weight_in_kilos = :weight, version = version + 1 "
+                        + "WHERE id = :id AND version = :version")
+                .bind("name", name)
+                .bind("weight", weightInKilos)
+                .bind("id", id)
+                .bind("version", version)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Long> deleteById(long id) {
+        return client.sql("DELETE FROM fruits WHERE id = :id")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Long> deleteByIdAndVersion(long id, long version) {
+        return client.sql("DELETE FROM fruits WHERE id = :id AND version = :version")
+                .bind("id", id)
+                .bind("version", version)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private static FruitResponseDTO toResponse(Readable row) {
+        return new FruitResponseDTO(
+                row.get("id", Long.class),
+                row.get("name", String.class),
+                row.get("weight_in_kilos", Integer.class),
+                row.get("version", Long.class));
+    }
+
+    // WHERE clause for the filters of GET /fruits, built the same way as FruitSpecifications.matching.
+    private record Query(String where, Map<String, Object> params) {
+
+        static Query matching(FruitFilter filter, Long after) {
+            StringBuilder where = new StringBuilder();
+            Map<String, Object> params = new LinkedHashMap<>();
+            if (after != null) {
+                and(where, "id > :after");
+                params.put("after", after);
+            }
+            if (filter.name() != null) {
+                and(where, "name_key = :name");
+                params.put("name", FruitSpecifications.normalize(filter.name()));
+            }
+            if (filter.namePrefix() != null) {
+                and(where, "name_key LIKE :prefix ESCAPE '" + FruitSpecifications.LIKE_ESCAPE + "'");
+                params.put("prefix", FruitSpecifications.escapeLike(
+                        FruitSpecifications.normalize(filter.namePrefix())) + "%");
+            }
+            if (filter.minWeight() != null) {
+                and(where, "weight_in_kilos >= :minWeight");
+                params.put("minWeight", filter.minWeight());
+            }
+            if (filter.maxWeight() != null) {
+                and(where, "weight_in_kilos <= :maxWeight");
+                params.put("maxWeight", filter.maxWeight());
+            }
+            return new Query(where.toString(), params);
+        }
+
+        private static void and(StringBuilder where, String condition) {
+            where.append(where.isEmpty() ? " WHERE " : " AND ").append(condition);
+        }
+
+        DatabaseClient.GenericExecuteSpec bindTo(DatabaseClient.GenericExecuteSpec spec) {
+            for (Map.Entry<String, Object> param : params.entrySet()) {
+                spec = spec.bind(param.getKey(), param.getValue());
+            }
+            return spec;
+        }
+    }
+}
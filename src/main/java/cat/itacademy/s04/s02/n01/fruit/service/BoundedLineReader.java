@@ -0,0 +1,57 @@
+package cat.itacademy.s04.s02.n01.fruit.service;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads lines like {@link java.io.BufferedReader#readLine()}, but keeps at most
+ * {@code maxLength} characters of each: the rest of a longer line is skipped, not buffered, and
+ * {@link #isTooLong()} reports it. {@code \n} and {@code \r\n} end a line.
+ */
+class BoundedLineReader {
+
+    private final Reader reader;
+    private final int maxLength;
+    private final StringBuilder line = new StringBuilder();
+    private boolean tooLong;
+
+    BoundedLineReader(Reader reader, int maxLength) {
+        this.reader = reader;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * The next line without its terminator, or {@code null} at the end of the input. For a line
+     * that is too long, its first {@code maxLength} characters.
+     */
+    String readLine() throws IOException {
+        line.setLength(0);
+        boolean overflow = false;
+        int c = reader.read();
+        if (c < 0) {
+            return null;
+        }
+        while (c >= 0 && c != '\n') {
+            // One character more than allowed, so that a trailing '\r' still fits.
+            if (line.length() <= maxLength) {
+                line.append((char) c);
+            } else {
+                overflow = true;
+            }
+            c = reader.read();
+        }
+
+        if (!overflow && !line.isEmpty() && line.charAt(line.length() - 1) == '\r') {
+            line.setLength(line.length() - 1);
+        }
+        tooLong = overflow || line.length() > maxLength;
+        if (tooLong) {
+            line.setLength(maxLength);
+        }
+        return line.toString();
+    }
+
+    boolean isTooLong() {
+        return tooLong;
+    }
+}
@@ -0,0 +1,208 @@
+package cat.itacademy.s04.s02.n01.fruit.service;
+
+import cat.itacademy.s04.s02.n01.fruit.cache.FruitCache;
+import cat.itacademy.s04.s02.n01.fruit.cache.FruitResponseCache;
+import cat.itacademy.s04.s02.n01.fruit.cache.FruitWriteBehindBuffer;
+import cat.itacademy.s04.s02.n01.fruit.dto.BatchItemResult;
+import cat.itacademy.s04.s02.n01.fruit.dto.BatchResponseDTO;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitBatchUpdateDTO;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitRequestDTO;
+import cat.itacademy.s04.s02.n01.fruit.events.FruitEventBroadcaster;
+import cat.itacademy.s04.s02.n01.fruit.exceptions.FruitNotFoundException;
+import cat.itacademy.s04.s02.n01.fruit.mapper.FruitMapper;
+import cat.itacademy.s04.s02.n01.fruit.model.Fruit;
+import cat.itacademy.s04.s02.n01.fruit.repository.FruitRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@Profile("!memory")
+@Timed(value = "fruit.service", histogram = true)
+@RequiredArgsConstructor
+public class FruitBatchService {
+
+    private final FruitRepository fruitRepository;
+    private final FruitMapper fruitMapper;
+    private final EntityManager entityManager;
+    private final Validator validator;
+    private final FruitCache fruitCache;
+    private final FruitResponseCache fruitResponseCache;
+    private final FruitWriteBehindBuffer writeBehind;
+    private final FruitEventBroadcaster fruitEvents;
+
+    @Value("${fruit.batch.size:50}")
+    private int batchSize;
+
+    @Transactional
+    public BatchResponseDTO createFruits(List<FruitRequestDTO> requests) {
+        List<BatchItemResult> results = new ArrayList<>(requests.size());
+        int pending = 0;
+
+        for (int index = 0; index < requests.size(); index++) {
+            FruitRequestDTO request = requests.get(index);
+            String errors = validate(request);
+            if (errors != null) {
+                results.add(new BatchItemResult(index, null, HttpStatus.BAD_REQUEST.value(), errors));
+                continue;
+            }
+
+            Fruit saved = fruitRepository.save(fruitMapper.toEntity(request));
+            results.add(new BatchItemResult(index, saved.getId(), HttpStatus.CREATED.value(), null));
+            fruitEvents.created(fruitMapper.toDTO(saved));
+
+            if (++pending == batchSize) {
+                flushAndClear();
+                pending = 0;
+            }
+        }
+        flushAndClear();
+
+        return BatchResponseDTO.of(results);
+    }
+
+    @Transactional
+    public BatchResponseDTO updateFruits(List<FruitBatchUpdateDTO> requests) {
+        BatchItemResult[] results = new BatchItemResult[requests.size()];
+        Map<Integer, FruitBatchUpdateDTO> chunk = new LinkedHashMap<>();
+
+        for (int index = 0; index < requests.size(); index++) {
+            FruitBatchUpdateDTO request = requests.get(index);
+            String errors = validate(request);
+            if (errors != null) {
+                Long id = request == null ? null : request.getId();
+                results[index] = new BatchItemResult(index, id, HttpStatus.BAD_REQUEST.value(), errors);
+                continue;
+            }
+
+            chunk.put(index, request);
+            if (chunk.size() == batchSize) {
+                updateChunk(chunk, results);
+            }
+        }
+        updateChunk(chunk, results);
+
+        return BatchResponseDTO.of(Arrays.asList(results));
+    }
+
+    @Transactional
+    public BatchResponseDTO deleteFruits(List<Long> ids) {
+        BatchItemResult[] results = new BatchItemResult[ids.size()];
+        Map<Integer, Long> chunk = new LinkedHashMap<>();
+
+        for (int index = 0; index < ids.size(); index++) {
+            Long id = ids.get(index);
+            if (id == null) {
+                results[index] = new BatchItemResult(index, null, HttpStatus.BAD_REQUEST.value(),
+                        "The id cannot be empty.");
+                continue;
+            }
+
+            chunk.put(index, id);
+            if (chunk.size() == batchSize) {
+                deleteChunk(chunk, results);
+            }
+        }
+        deleteChunk(chunk, results);
+
+        return BatchResponseDTO.of(Arrays.asList(results));
+    }
+
+    private void updateChunk(Map<Integer, FruitBatchUpdateDTO> chunk, BatchItemResult[] results) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        Set<Long> ids = chunk.values().stream()
+                .map(FruitBatchUpdateDTO::getId)
+                .collect(Collectors.toSet());
+        Map<Long, Fruit> fruits = fruitRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Fruit::getId, Function.identity()));
+
+        List<Fruit> updated = new ArrayList<>(chunk.size());
+        chunk.forEach((index, request) -> {
+            Fruit fruit = fruits.get(request.getId());
+            if (fruit == null) {
+                results[index] = notFound(index, request.getId());
+                return;
+            }
+            fruit.setName(request.getName());
+            fruit.setWeightInKilos(request.getWeightInKilos());
+            writeBehind.discard(fruit.getId());
+            fruitCache.invalidate(fruit.getId());
+            fruitResponseCache.invalidate(fruit.getId());
+            updated.add(fruit);
+            results[index] = new BatchItemResult(index, fruit.getId(), HttpStatus.OK.value(), null);
+        });
+
+        // The flush bumps the versions, so the events carry the ones just written.
+        entityManager.flush();
+        updated.forEach(fruit -> fruitEvents.updated(fruitMapper.toDTO(fruit)));
+        entityManager.clear();
+        chunk.clear();
+    }
+
+    private void deleteChunk(Map<Integer, Long> chunk, BatchItemResult[] results) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        Set<Long> existing = new HashSet<>(fruitRepository.findExistingIds(new HashSet<>(chunk.values())));
+        if (!existing.isEmpty()) {
+            fruitRepository.deleteAllByIdInBatch(existing);
+            existing.forEach(id -> {
+                writeBehind.discard(id);
+                fruitCache.invalidate(id);
+                fruitResponseCache.invalidate(id);
+                fruitEvents.deleted(id);
+            });
+        }
+
+        chunk.forEach((index, id) -> results[index] = existing.remove(id)
+                ? new BatchItemResult(index, id, HttpStatus.NO_CONTENT.value(), null)
+                : notFound(index, id));
+
+        chunk.clear();
+    }
+
+    private String validate(Object request) {
+        return validate(validator, request);
+    }
+
+    // Joined constraint messages, or null when the request is valid.
+    static String validate(Validator validator, Object request) {
+        if (request == null) {
+            return "The fruit cannot be empty.";
+        }
+
+        Set<ConstraintViolation<Object>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    private BatchItemResult notFound(int index, Long id) {
+        return new BatchItemResult(index, id, HttpStatus.NOT_FOUND.value(),
+                FruitNotFoundException.messageFor(id));
+    }
+
+    private void flushAndClear() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+}
@@ -0,0 +1,22 @@
+package cat.itacademy.s04.s02.n01.fruit.service;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Line-oriented formats accepted by {@code POST /fruits/import} and written by {@code GET /fruits/export}.
+ */
+public enum FruitFileFormat {
+
+    NDJSON(MediaType.APPLICATION_NDJSON),
+    CSV(new MediaType("text", "csv"));
+
+    private final MediaType mediaType;
+
+    FruitFileFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public MediaType mediaType() {
+        return mediaType;
+    }
+}
@@ -0,0 +1,246 @@
+package cat.itacademy.s04.s02.n01.fruit.service;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.BatchItemResult;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitRequestDTO;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitResponseDTO;
+import cat.itacademy.s04.s02.n01.fruit.dto.ImportResponseDTO;
+import cat.itacademy.s04.s02.n01.fruit.events.FruitEventBroadcaster;
+import cat.itacademy.s04.s02.n01.fruit.exceptions.FruitImportFailedException;
+import cat.itacademy.s04.s02.n01.fruit.mapper.FruitMapper;
+import cat.itacademy.s04.s02.n01.fruit.model.Fruit;
+import cat.itacademy.s04.s02.n01.fruit.repository.FruitRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Imports a streamed NDJSON or CSV body line by line. Valid records are committed every
+ * {@code fruit.import.chunk-size} lines, so memory stays bounded by one chunk whatever the size
+ * of the body, and a failure only loses the chunk in progress. Lines are read with at most
+ * {@code fruit.import.max-line-length} characters, so a body without line breaks cannot fill the
+ * heap either. Progress is published as the {@code fruit.import.lines} counter while the import runs,
+ * and a {@code created} event is published for every fruit of a chunk once that chunk has committed.
+ */
+@Slf4j
+@Service
+@Profile("!memory")
+@Timed(value = "fruit.service", histogram = true)
+public class FruitImportService {
+
+    static final String CSV_HEADER = "name,weightInKilos";
+
+    private final FruitRepository fruitRepository;
+    private final FruitMapper fruitMapper;
+    private final EntityManager entityManager;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final FruitEventBroadcaster fruitEvents;
+    private final ObjectReader ndjsonReader;
+    private final int chunkSize;
+    private final int batchSize;
+    private final int maxErrors;
+    private final int maxLineLength;
+
+    public FruitImportService(FruitRepository fruitRepository,
+                              FruitMapper fruitMapper,
+                              EntityManager entityManager,
+                              Validator validator,
+                              TransactionTemplate transactionTemplate,
+                              MeterRegistry meterRegistry,
+                              FruitEventBroadcaster fruitEvents,
+                              ObjectMapper objectMapper,
+                              @Value("${fruit.import.chunk-size:1000}") int chunkSize,
+                              @Value("${fruit.batch.size:50}") int batchSize,
+                              @Value("${fruit.import.max-errors:100}") int maxErrors,
+                              @Value("${fruit.import.max-line-length:4096}") int maxLineLength) {
+        this.fruitRepository = fruitRepository;
+        this.fruitMapper = fruitMapper;
+        this.entityManager = entityManager;
+        this.validator = validator;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.fruitEvents = fruitEvents;
+        this.ndjsonReader = objectMapper.readerFor(FruitRequestDTO.class);
+        this.chunkSize = chunkSize;
+        this.batchSize = batchSize;
+        this.maxErrors = maxErrors;
+        this.maxLineLength = maxLineLength;
+    }
+
+    public ImportResponseDTO importFruits(InputStream body, FruitFileFormat format) throws IOException {
+        BoundedLineReader reader = new BoundedLineReader(
+                new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8), 64 * 1024), maxLineLength);
+        List<FruitRequestDTO> chunk = new ArrayList<>(chunkSize);
+        List<BatchItemResult> errors = new ArrayList<>();
+        long lines = 0;
+        long imported = 0;
+        long failed = 0;
+        boolean withId = false;
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lines++;
+            if (lines == 1 && line.startsWith("\uFEFF")) {
+                line = line.substring(1);
+            }
+            if (lines == 1 && format == FruitFileFormat.CSV && isCsvHeader(line, FruitExportService.CSV_HEADER)) {
+                // A file from GET /fruits/export; ids are assigned on import, so that column is skipped.
+                withId = true;
+                continue;
+            }
+            if (line.isBlank() || (lines == 1 && format == FruitFileFormat.CSV && isCsvHeader(line, CSV_HEADER))) {
+                continue;
+            }
+
+            String error = reader.isTooLong()
+                    ? "The line is longer than " + maxLineLength + " characters."
+                    : addValid(line, format, withId, chunk);
+
+            if (error != null) {
+                failed++;
+                if (errors.size() < maxErrors) {
+                    errors.add(new BatchItemResult((int) Math.min(lines, Integer.MAX_VALUE), null,
+                            HttpStatus.BAD_REQUEST.value(), error));
+                }
+                count("failed", 1);
+            } else if (chunk.size() == chunkSize) {
+                imported += commit(chunk, lines, imported);
+            }
+        }
+        imported += commit(chunk, lines, imported);
+
+        return new ImportResponseDTO(lines, imported, failed, errors, failed > errors.size());
+    }
+
+    // Parses and validates one line, adding it to chunk if it is valid; otherwise returns the error.
+    private String addValid(String line, FruitFileFormat format, boolean withId, List<FruitRequestDTO> chunk) {
+        try {
+            FruitRequestDTO request = format == FruitFileFormat.CSV
+                    ? parseCsv(withId ? skipId(line) : line)
+                    : ndjsonReader.readValue(line);
+            String error = FruitBatchService.validate(validator, request);
+            if (error == null) {
+                chunk.add(request);
+            }
+            return error;
+        } catch (JsonProcessingException e) {
+            return "Malformed JSON: " + e.getOriginalMessage();
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+    }
+
+    // lines and imported are the progress so far, reported if the database rejects this chunk.
+    private int commit(List<FruitRequestDTO> chunk, long lines, long imported) {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+
+        List<FruitResponseDTO> saved = new ArrayList<>(chunk.size());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                saved.clear();
+                for (int i = 0; i < chunk.size(); i++) {
+                    Fruit fruit = fruitRepository.save(fruitMapper.toEntity(chunk.get(i)));
+                    saved.add(new FruitResponseDTO(fruit.getId(), fruit.getName(), fruit.getWeightInKilos()));
+                    if ((i + 1) % batchSize == 0) {
+                        entityManager.flush();
+                        entityManager.clear();
+                    }
+                }
+            });
+        } catch (DataAccessException | TransactionException | PersistenceException e) {
+            log.error("Import stopped at line {} after {} committed fruits", lines, imported, e);
+            throw new FruitImportFailedException(lines, imported, e);
+        }
+
+        // Only now that the chunk has committed; a chunk that fails publishes nothing.
+        saved.forEach(fruitEvents::created);
+        int committed = chunk.size();
+        chunk.clear();
+        count("imported", committed);
+        return committed;
+    }
+
+    private void count(String result, int lines) {
+        meterRegistry.counter("fruit.import.lines", "result", result).increment(lines);
+    }
+
+    private static boolean isCsvHeader(String line, String header) {
+        return line.replace(" ", "").equalsIgnoreCase(header);
+    }
+
+    private static String skipId(String line) {
+        int comma = line.indexOf(',');
+        if (comma < 0) {
+            throw new IllegalArgumentException("Expected " + FruitExportService.CSV_HEADER + ".");
+        }
+        return line.substring(comma + 1);
+    }
+
+    // name,weightInKilos. A name containing commas or quotes is quoted, with "" for a quote.
+    static FruitRequestDTO parseCsv(String line) {
+        String name;
+        int comma;
+        if (line.startsWith("\"")) {
+            StringBuilder quoted = new StringBuilder();
+            int from = 1;
+            while (true) {
+                int quote = line.indexOf('"', from);
+                if (quote < 0) {
+                    throw new IllegalArgumentException("Unterminated quoted name.");
+                }
+                quoted.append(line, from, quote);
+                if (quote + 1 < line.length() && line.charAt(quote + 1) == '"') {
+                    quoted.append('"');
+                    from = quote + 2;
+                } else {
+                    comma = quote + 1;
+                    break;
+                }
+            }
+            if (comma >= line.length() || line.charAt(comma) != ',') {
+                throw new IllegalArgumentException("Expected " + CSV_HEADER + ".");
+            }
+            name = quoted.toString();
+        } else {
+            comma = line.indexOf(',');
+            if (comma < 0) {
+                throw new IllegalArgumentException("Expected " + CSV_HEADER + ".");
+            }
+            name = line.substring(0, comma);
+        }
+
+        String weight = line.substring(comma + 1).trim();
+        if (weight.indexOf(',') >= 0) {
+            throw new IllegalArgumentException("Expected " + CSV_HEADER + ".");
+        }
+        try {
+            return new FruitRequestDTO(name, Integer.parseInt(weight));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("The weight must be a whole number.");
+        }
+    }
+}
@@ -1,67 +1,45 @@
 package cat.itacademy.s04.s02.n01.fruit.service;
 
-import cat.itacademy.s04.s02.n01.fruit.repository.FruitRepository;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitFilter;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitPage;
 import cat.itacademy.s04.s02.n01.fruit.dto.FruitRequestDTO;
 import cat.itacademy.s04.s02.n01.fruit.dto.FruitResponseDTO;
-import cat.itacademy.s04.s02.n01.fruit.exceptions.FruitNotFoundException;
-import cat.itacademy.s04.s02.n01.fruit.mapper.FruitMapper;
-import cat.itacademy.s04.s02.n01.fruit.model.Fruit;
-import lombok.RequiredArgsConstructor;
-import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import cat.itacademy.s04.s02.n01.fruit.exceptions.FruitVersionConflictException;
 
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.function.Consumer;
 
-@Service
-@RequiredArgsConstructor
-public class FruitService {
+/**
+ * The fruit operations behind {@code FruitController}. {@link JpaFruitService} keeps fruits in H2
+ * through JPA; under the {@code memory} profile {@link MemoryFruitService} keeps them in process.
+ */
+public interface FruitService {
 
-    private final FruitRepository fruitRepository;
-    private final FruitMapper fruitMapper;
+    FruitResponseDTO createFruit(FruitRequestDTO request);
 
-    @Transactional
-    public FruitResponseDTO createFruit(FruitRequestDTO request) {
-        Fruit fruit = fruitMapper.toEntity(request);
-        Fruit savedFruit = fruitRepository.save(fruit);
-        return fruitMapper.toDTO(savedFruit);
-    }
+    /**
+     * One keyset page in id order, after {@code after} (exclusive). The next cursor is set when the
+     * page is full.
+     */
+    FruitPage getFruitPage(FruitFilter filter, Long after, Integer limit);
 
-    @Transactional(readOnly = true)
-    public List<FruitResponseDTO> getAllFruits() {
-        return fruitRepository.findAll().stream()
-                .map(fruitMapper::toDTO)
-                .collect(Collectors.toList());
-    }
+    void streamAllFruits(Consumer<FruitResponseDTO> action);
 
-    @Transactional(readOnly = true)
-    public FruitResponseDTO getFruitById(Long id) {
-        Fruit fruit = fruitRepository.findById(id)
-                .orElseThrow(() -> new FruitNotFoundException(
-                        "Fruit not found with id: " + id));
+    Optional<FruitResponseDTO> findFruitById(Long id);
 
-        return fruitMapper.toDTO(fruit);
-    }
+    Optional<FruitResponseDTO> updateFruit(Long id, FruitRequestDTO request);
 
-    @Transactional
-    public FruitResponseDTO updateFruit(Long id, FruitRequestDTO request) {
-        Fruit fruit = fruitRepository.findById(id)
-                .orElseThrow(() -> new FruitNotFoundException(
-                        "Fruit not found with id: " + id));
+    /**
+     * Empty when the fruit does not exist. With an {@code expectedVersion} the fruit is only changed
+     * if it still has that version, otherwise {@link FruitVersionConflictException} is thrown.
+     */
+    Optional<FruitResponseDTO> updateFruit(Long id, FruitRequestDTO request, Long expectedVersion);
 
-        fruit.setName(request.getName());
-        fruit.setWeightInKilos(request.getWeightInKilos());
+    boolean deleteFruit(Long id);
 
-        Fruit updatedFruit = fruitRepository.save(fruit);
-        return fruitMapper.toDTO(updatedFruit);
-    }
-
-    @Transactional
-    public void deleteFruit(Long id) {
-        Fruit fruit = fruitRepository.findById(id)
-                .orElseThrow(() -> new FruitNotFoundException(
-                        "Fruit not found with id: " + id));
-
-        fruitRepository.delete(fruit);
-    }
+    /**
+     * {@code false} when the fruit does not exist; {@link FruitVersionConflictException} as for
+     * {@link #updateFruit(Long, FruitRequestDTO, Long)}.
+     */
+    boolean deleteFruit(Long id, Long expectedVersion);
 }
@@ -0,0 +1,54 @@
+package cat.itacademy.s04.s02.n01.fruit.service;
+
+import cat.itacademy.s04.s02.n01.fruit.cache.FruitWriteBehindBuffer;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitNameStatsDTO;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitResponseDTO;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitTotalsDTO;
+import cat.itacademy.s04.s02.n01.fruit.repository.FruitRepository;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Aggregates computed by the database. Updates waiting in the write-behind buffer are flushed first,
+ * outside any transaction, because a buffered weight can change a sum, a group or the ranking.
+ */
+@Service
+@Profile("!memory")
+@Timed(value = "fruit.service", histogram = true)
+@RequiredArgsConstructor
+public class FruitStatsService {
+
+    private final FruitRepository fruitRepository;
+    private final FruitWriteBehindBuffer writeBehind;
+
+    @Value("${fruit.pagination.default-limit:100}")
+    private int defaultLimit;
+
+    @Value("${fruit.pagination.max-limit:1000}")
+    private int maxLimit;
+
+    public FruitTotalsDTO getTotals() {
+        writeBehind.flush();
+        return fruitRepository.findTotals();
+    }
+
+    public List<FruitNameStatsDTO> getStatsByName(Integer limit) {
+        writeBehind.flush();
+        return fruitRepository.findStatsByName(limitOf(limit));
+    }
+
+    public List<FruitResponseDTO> getHeaviestFruits(Integer limit) {
+        writeBehind.flush();
+        return fruitRepository.findHeaviest(limitOf(limit));
+    }
+
+    private Limit limitOf(Integer limit) {
+        return Limit.of(limit == null ? defaultLimit : Math.min(limit, maxLimit));
+    }
+}
@@ -0,0 +1,200 @@
+package cat.itacademy.s04.s02.n01.fruit.service;
+
+import cat.itacademy.s04.s02.n01.fruit.cache.FruitCache;
+import cat.itacademy.s04.s02.n01.fruit.cache.FruitResponseCache;
+import cat.itacademy.s04.s02.n01.fruit.cache.FruitWriteBehindBuffer;
+import cat.itacademy.s04.s02.n01.fruit.events.FruitEventBroadcaster;
+import cat.itacademy.s04.s02.n01.fruit.repository.FruitCursor;
+import cat.itacademy.s04.s02.n01.fruit.repository.FruitRepository;
+import cat.itacademy.s04.s02.n01.fruit.repository.FruitSpecifications;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitFilter;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitPage;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitRequestDTO;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitResponseDTO;
+import cat.itacademy.s04.s02.n01.fruit.exceptions.FruitVersionConflictException;
+import cat.itacademy.s04.s02.n01.fruit.mapper.FruitMapper;
+import cat.itacademy.s04.s02.n01.fruit.model.Fruit;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+@Service
+@Profile("!memory")
+@Timed(value = "fruit.service", histogram = true)
+@RequiredArgsConstructor
+public class JpaFruitService implements FruitService {
+
+    private final FruitRepository fruitRepository;
+    private final FruitCursor fruitCursor;
+    private final FruitMapper fruitMapper;
+    private final FruitCache fruitCache;
+    private final FruitResponseCache fruitResponseCache;
+    private final FruitWriteBehindBuffer writeBehind;
+    private final TransactionTemplate transactionTemplate;
+    private final FruitEventBroadcaster fruitEvents;
+
+    @Value("${fruit.pagination.default-limit:100}")
+    private int defaultPageLimit;
+
+    @Value("${fruit.pagination.max-limit:1000}")
+    private int maxPageLimit;
+
+    @Override
+    @Transactional
+    public FruitResponseDTO createFruit(FruitRequestDTO request) {
+        Fruit fruit = fruitMapper.toEntity(request);
+        Fruit savedFruit = fruitRepository.save(fruit);
+        FruitResponseDTO response = fruitMapper.toDTO(savedFruit);
+        fruitCache.put(response);
+        fruitEvents.created(response);
+        return response;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public FruitPage getFruitPage(FruitFilter filter, Long after, Integer limit) {
+        int pageSize = limit == null ? defaultPageLimit : Math.min(limit, maxPageLimit);
+        long cursor = after == null ? 0L : after;
+
+        List<FruitResponseDTO> fruits = filter.isEmpty()
+                ? fruitRepository.findResponsesAfter(cursor, Limit.of(pageSize))
+                : fruitRepository.findResponses(FruitSpecifications.matching(filter, after), pageSize);
+
+        Long nextCursor = fruits.size() == pageSize
+                ? fruits.get(fruits.size() - 1).getId()
+                : null;
+        return writeBehind.overlay(new FruitPage(fruits, nextCursor), filter, cursor, pageSize);
+    }
+
+    // Through the same lazy JDBC cursor as the export, so the first fruit is passed on before H2 has
+    // read the last one.
+    @Override
+    public void streamAllFruits(Consumer<FruitResponseDTO> action) {
+        fruitCursor.forEach((id, name, weightInKilos) -> {
+            FruitResponseDTO buffered = writeBehind.get(id);
+            action.accept(buffered == null ? new FruitResponseDTO(id, name, weightInKilos) : buffered);
+        });
+    }
+
+    @Override
+    public Optional<FruitResponseDTO> findFruitById(Long id) {
+        FruitResponseDTO buffered = writeBehind.get(id);
+        if (buffered != null) {
+            return Optional.of(buffered);
+        }
+        return Optional.ofNullable(fruitCache.get(id, this::loadFruitById));
+    }
+
+    private FruitResponseDTO loadFruitById(Long id) {
+        return fruitRepository.findResponseById(id).orElse(null);
+    }
+
+    @Override
+    public Optional<FruitResponseDTO> updateFruit(Long id, FruitRequestDTO request) {
+        return updateFruit(id, request, null);
+    }
+
+    /**
+     * Updates the fruit in a single {@code UPDATE}. With an {@code expectedVersion} the row is only
+     * changed if it still has that version, otherwise {@link FruitVersionConflictException} is thrown.
+     * With write-behind enabled an update without {@code expectedVersion} is buffered instead, and no
+     * transaction is opened for it.
+     */
+    @Override
+    public Optional<FruitResponseDTO> updateFruit(Long id, FruitRequestDTO request, Long expectedVersion) {
+        if (expectedVersion == null && writeBehind.isEnabled()) {
+            return bufferFruitUpdate(id, request);
+        }
+        flushBuffered(id, expectedVersion);
+        return transactionTemplate.execute(status -> writeFruitUpdate(id, request, expectedVersion));
+    }
+
+    // Existence is checked against the buffer and FruitCache. The event is published by the flush.
+    private Optional<FruitResponseDTO> bufferFruitUpdate(Long id, FruitRequestDTO request) {
+        return Optional.ofNullable(writeBehind.put(id, request,
+                fruitId -> fruitCache.get(fruitId, this::loadFruitById)));
+    }
+
+    private Optional<FruitResponseDTO> writeFruitUpdate(Long id, FruitRequestDTO request, Long expectedVersion) {
+        checkBuffered(id, expectedVersion);
+        Optional<FruitResponseDTO> updated;
+        if (expectedVersion == null) {
+            // The new version is returned by the UPDATE itself.
+            updated = fruitRepository.updateReturning(id, request.getName(), request.getWeightInKilos());
+        } else if (fruitRepository.updateByIdAndVersion(id, expectedVersion,
+                request.getName(), request.getWeightInKilos()) == 0) {
+            checkVersionConflict(id, expectedVersion);
+            updated = Optional.empty();
+        } else {
+            updated = Optional.of(new FruitResponseDTO(id, request.getName(), request.getWeightInKilos(),
+                    expectedVersion + 1));
+        }
+
+        updated.ifPresent(fruit -> {
+            fruitCache.invalidate(id);
+            fruitResponseCache.invalidate(id);
+            fruitEvents.updated(fruit);
+        });
+        return updated;
+    }
+
+    @Override
+    public boolean deleteFruit(Long id) {
+        return deleteFruit(id, null);
+    }
+
+    @Override
+    public boolean deleteFruit(Long id, Long expectedVersion) {
+        flushBuffered(id, expectedVersion);
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> writeFruitDelete(id, expectedVersion)));
+    }
+
+    private boolean writeFruitDelete(Long id, Long expectedVersion) {
+        checkBuffered(id, expectedVersion);
+        int deleted = expectedVersion == null
+                ? fruitRepository.deleteByIdReturningCount(id)
+                : fruitRepository.deleteByIdAndVersion(id, expectedVersion);
+        if (deleted == 0) {
+            checkVersionConflict(id, expectedVersion);
+            return false;
+        }
+
+        fruitCache.invalidate(id);
+        fruitResponseCache.invalidate(id);
+        fruitEvents.deleted(id);
+        return true;
+    }
+
+    // A client may hold the ETag of a buffered update, the version it gets once written, so the buffer
+    // is flushed before a conditional write on that fruit. Runs outside the write's transaction.
+    private void flushBuffered(Long id, Long expectedVersion) {
+        if (expectedVersion != null && writeBehind.isPending(id)) {
+            writeBehind.flush();
+        }
+    }
+
+    // A buffered update that arrived after flushBuffered will move the row to a version the client
+    // cannot have seen yet, so a conditional write conflicts; an unconditional one replaces it.
+    private void checkBuffered(Long id, Long expectedVersion) {
+        if (expectedVersion != null && writeBehind.isPending(id)) {
+            throw new FruitVersionConflictException(id);
+        }
+        writeBehind.discard(id);
+    }
+
+    // Only reached when nothing was changed, to tell a stale version from a missing id.
+    private void checkVersionConflict(Long id, Long expectedVersion) {
+        if (expectedVersion != null && fruitRepository.existsById(id)) {
+            throw new FruitVersionConflictException(id);
+        }
+    }
+}
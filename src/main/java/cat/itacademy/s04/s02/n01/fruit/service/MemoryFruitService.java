@@ -0,0 +1,107 @@
+package cat.itacademy.s04.s02.n01.fruit.service;
+
+import cat.itacademy.s04.s02.n01.fruit.cache.FruitResponseCache;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitFilter;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitPage;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitRequestDTO;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitResponseDTO;
+import cat.itacademy.s04.s02.n01.fruit.events.FruitEventBroadcaster;
+import cat.itacademy.s04.s02.n01.fruit.repository.FruitMemoryStore;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * {@link FruitService} over {@link FruitMemoryStore}. Reads need no cache in front of them; only the
+ * serialized responses of {@link FruitResponseCache} are invalidated on writes.
+ */
+@Service
+@Profile("memory")
+@Timed(value = "fruit.service", histogram = true)
+@RequiredArgsConstructor
+public class MemoryFruitService implements FruitService {
+
+    private static final int STREAM_CHUNK = 1000;
+
+    private final FruitMemoryStore fruitStore;
+    private final FruitResponseCache fruitResponseCache;
+    private final FruitEventBroadcaster fruitEvents;
+
+    @Value("${fruit.pagination.default-limit:100}")
+    private int defaultPageLimit;
+
+    @Value("${fruit.pagination.max-limit:1000}")
+    private int maxPageLimit;
+
+    @Override
+    public FruitResponseDTO createFruit(FruitRequestDTO request) {
+        FruitResponseDTO created = fruitStore.insert(request.getName(), request.getWeightInKilos());
+        fruitEvents.created(created);
+        return created;
+    }
+
+    @Override
+    public FruitPage getFruitPage(FruitFilter filter, Long after, Integer limit) {
+        int pageSize = limit == null ? defaultPageLimit : Math.min(limit, maxPageLimit);
+        List<FruitResponseDTO> fruits = fruitStore.findPage(filter, after, pageSize);
+        Long nextCursor = fruits.size() == pageSize
+                ? fruits.get(fruits.size() - 1).getId()
+                : null;
+        return new FruitPage(fruits, nextCursor);
+    }
+
+    // In chunks, so the store's read lock is never held while the caller writes the response.
+    @Override
+    public void streamAllFruits(Consumer<FruitResponseDTO> action) {
+        Long after = null;
+        List<FruitResponseDTO> chunk;
+        do {
+            chunk = fruitStore.findPage(FruitFilter.NONE, after, STREAM_CHUNK);
+            chunk.forEach(action);
+            after = chunk.isEmpty() ? after : chunk.get(chunk.size() - 1).getId();
+        } while (chunk.size() == STREAM_CHUNK);
+    }
+
+    @Override
+    public Optional<FruitResponseDTO> findFruitById(Long id) {
+        return Optional.ofNullable(fruitStore.find(id));
+    }
+
+    @Override
+    public Optional<FruitResponseDTO> updateFruit(Long id, FruitRequestDTO request) {
+        return updateFruit(id, request, null);
+    }
+
+    @Override
+    public Optional<FruitResponseDTO> updateFruit(Long id, FruitRequestDTO request, Long expectedVersion) {
+        FruitResponseDTO updated = fruitStore.update(id, request.getName(), request.getWeightInKilos(),
+                expectedVersion);
+        if (updated == null) {
+            return Optional.empty();
+        }
+        fruitResponseCache.invalidate(id);
+        fruitEvents.updated(updated);
+        return Optional.of(updated);
+    }
+
+    @Override
+    public boolean deleteFruit(Long id) {
+        return deleteFruit(id, null);
+    }
+
+    @Override
+    public boolean deleteFruit(Long id, Long expectedVersion) {
+        if (!fruitStore.delete(id, expectedVersion)) {
+            return false;
+        }
+        fruitResponseCache.invalidate(id);
+        fruitEvents.deleted(id);
+        return true;
+    }
+}
@@ -0,0 +1,95 @@
+package cat.itacademy.s04.s02.n01.fruit.service;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitFilter;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitPage;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitRequestDTO;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitResponseDTO;
+import cat.itacademy.s04.s02.n01.fruit.exceptions.FruitVersionConflictException;
+import cat.itacademy.s04.s02.n01.fruit.repository.ReactiveFruitRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking {@link FruitService} for the {@code reactive} profile. Every operation is a single
+ * statement, so it runs in auto-commit mode without a transaction manager. The JVM caches in front
+ * of {@link FruitService} are not used here: reads always go to the database.
+ */
+@Service
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveFruitService {
+
+    private final ReactiveFruitRepository fruitRepository;
+
+    @Value("${fruit.pagination.default-limit:100}")
+    private int defaultPageLimit;
+
+    @Value("${fruit.pagination.max-limit:1000}")
+    private int maxPageLimit;
+
+    public Mono<FruitResponseDTO> createFruit(FruitRequestDTO request) {
+        return fruitRepository.insert(request.getName(), request.getWeightInKilos());
+    }
+
+    public int pageSize(Integer limit) {
+        return limit == null ? defaultPageLimit : Math.min(limit, maxPageLimit);
+    }
+
+    /**
+     * One page and the cursor for the next: the id of the page's last row when it is full, as in
+     * {@link FruitService#getFruitPage}. Taken from the rows read, so it always matches the body.
+     */
+    public Mono<FruitPage> getFruitPage(FruitFilter filter, Long after, int pageSize) {
+        return fruitRepository.findPage(filter, after, pageSize)
+                .collectList()
+                .map(fruits -> new FruitPage(fruits,
+                        fruits.size() == pageSize ? fruits.get(fruits.size() - 1).getId() : null));
+    }
+
+    public Flux<FruitResponseDTO> streamAllFruits() {
+        return fruitRepository.findAll();
+    }
+
+    public Mono<FruitResponseDTO> findFruitById(Long id) {
+        return fruitRepository.findById(id);
+    }
+
+    /**
+     * Empty when the fruit does not exist; {@link FruitVersionConflictException} when it exists with
+     * another version than {@code expectedVersion}.
+     */
+    public Mono<FruitResponseDTO> updateFruit(Long id, FruitRequestDTO request, Long expectedVersion) {
+        if (expectedVersion == null) {
+            return fruitRepository.updateById(id, request.getName(), request.getWeightInKilos());
+        }
+        return fruitRepository.updateByIdAndVersion(id, expectedVersion, request.getName(), request.getWeightInKilos())
+                .flatMap(count -> count == 0
+                        ? checkVersionConflict(id, expectedVersion).then(Mono.<FruitResponseDTO>empty())
+                        : Mono.just(new FruitResponseDTO(id, request.getName(), request.getWeightInKilos(),
+                                expectedVersion + 1)));
+    }
+
+    public Mono<Boolean> deleteFruit(Long id, Long expectedVersion) {
+        Mono<Long> deleted = expectedVersion == null
+                ? fruitRepository.deleteById(id)
+                : fruitRepository.deleteByIdAndVersion(id, expectedVersion);
+        return deleted.flatMap(count -> count == 0
+                ? checkVersionConflict(id, expectedVersion).thenReturn(false)
+                : Mono.just(true));
+    }
+
+    // Only reached when nothing was changed, to tell a stale version from a missing id.
+    private Mono<Void> checkVersionConflict(Long id, Long expectedVersion) {
+        if (expectedVersion == null) {
+            return Mono.empty();
+        }
+        return fruitRepository.existsById(id)
+                .flatMap(exists -> exists
+                        ? Mono.error(new FruitVersionConflictException(id))
+                        : Mono.empty());
+    }
+}
@@ -0,0 +1,15 @@
+CREATE SEQUENCE IF NOT EXISTS fruit_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS fruits (
+    id BIGINT NOT NULL,
+    name VARCHAR(255),
+    weight_in_kilos INTEGER NOT NULL,
+    PRIMARY KEY (id)
+);
+
+ALTER TABLE fruits ADD COLUMN IF NOT EXISTS name_key VARCHAR(255) GENERATED ALWAYS AS (LOWER(name));
+
+CREATE INDEX IF NOT EXISTS idx_fruits_name_key ON fruits (name_key, id);
+CREATE INDEX IF NOT EXISTS idx_fruits_weight ON fruits (weight_in_kilos, id);
+
+ALTER TABLE fruits ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
@@ -0,0 +1,46 @@
+package cat.itacademy.s04.s02.n01.fruit;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitRequestDTO;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitResponseDTO;
+import cat.itacademy.s04.s02.n01.fruit.service.FruitService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FruitProdProfileTest {
+
+    @TempDir
+    private Path dataDir;
+
+    private ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(FruitApiH2Application.class)
+                .web(WebApplicationType.NONE)
+                .profiles("prod")
+                .run("--fruit.data-dir=" + dataDir, "--spring.main.banner-mode=off");
+    }
+
+    @Test
+    @DisplayName("prod profile - must validate the file schema and keep fruits across restarts")
+    void testFruitsSurviveRestart() {
+        Long id;
+        try (ConfigurableApplicationContext context = start()) {
+            id = context.getBean(FruitService.class).createFruit(new FruitRequestDTO("Apple", 5)).getId();
+        }
+
+        try (ConfigurableApplicationContext context = start()) {
+            FruitService service = context.getBean(FruitService.class);
+
+            FruitResponseDTO fruit = service.findFruitById(id).orElseThrow();
+            assertEquals("Apple", fruit.getName());
+            assertTrue(service.createFruit(new FruitRequestDTO("Banana", 3)).getId() > id);
+        }
+    }
+}
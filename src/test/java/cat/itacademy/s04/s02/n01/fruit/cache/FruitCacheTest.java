@@ -0,0 +1,191 @@
+package cat.itacademy.s04.s02.n01.fruit.cache;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitResponseDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FruitCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final FruitCache fruitCache = new FruitCache(meterRegistry, 100, Duration.ofMinutes(1));
+
+    @Test
+    @DisplayName("get - must load once and serve the next reads from the cache")
+    void testGet_LoadsOnce() {
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            fruitCache.get(1L, id -> {
+                loads.incrementAndGet();
+                return new FruitResponseDTO(id, "Apple", 5);
+            });
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(2.0, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("invalidate - must not leave a value loaded before a concurrent update in the cache")
+    void testInvalidate_DuringLoad_DropsStaleValue() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            Future<FruitResponseDTO> staleRead = executor.submit(() -> fruitCache.get(1L, id -> {
+                loading.countDown();
+                await(release);
+                return new FruitResponseDTO(id, "Apple", 5);
+            }));
+            loading.await();
+
+            Future<?> writer = executor.submit(() -> fruitCache.invalidate(1L));
+            release.countDown();
+            writer.get(5, TimeUnit.SECONDS);
+            staleRead.get(5, TimeUnit.SECONDS);
+
+            FruitResponseDTO fresh = fruitCache.get(1L, id -> new FruitResponseDTO(id, "Green Apple", 10));
+            assertEquals("Green Apple", fresh.getName());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("invalidate - must not wait for an in-flight load of the same id")
+    void testInvalidate_DoesNotWaitForLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+
+        try {
+            executor.submit(() -> fruitCache.get(1L, id -> {
+                loading.countDown();
+                await(release);
+                return new FruitResponseDTO(id, "Apple", 5);
+            }));
+            loading.await();
+
+            // A writer holding a pooled connection invalidates while the loader waits for one.
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> fruitCache.invalidate(1L));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("invalidate - concurrent updates of the same id must end with the last written value")
+    void testInvalidate_ConcurrentWriters() throws Exception {
+        ConcurrentHashMap<Long, Integer> database = new ConcurrentHashMap<>();
+        database.put(1L, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            for (int i = 1; i <= 200; i++) {
+                int weight = i;
+                executor.submit(() -> {
+                    await(start);
+                    fruitCache.get(1L, id -> new FruitResponseDTO(id, "Apple", database.get(id)));
+                    database.merge(1L, weight, Math::max);
+                    fruitCache.invalidate(1L);
+                });
+            }
+            start.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+            FruitResponseDTO cached = fruitCache.get(1L, id -> new FruitResponseDTO(id, "Apple", database.get(id)));
+            assertEquals(200, cached.getWeightInKilos());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("get without a cache - concurrent reads of one id must share one load, not-found included")
+    void testGet_NoCache_CollapsesConcurrentLoads() throws Exception {
+        FruitCache uncached = new FruitCache(meterRegistry, 0, Duration.ofMinutes(1));
+        int readers = 8;
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(readers);
+
+        try {
+            List<Future<FruitResponseDTO>> reads = new ArrayList<>();
+            for (int i = 0; i < readers; i++) {
+                reads.add(executor.submit(() -> uncached.get(1L, id -> {
+                    loads.incrementAndGet();
+                    await(release);
+                    return null;
+                })));
+            }
+            Counter collapsed = meterRegistry.get("fruit.loads").tag("result", "collapsed").counter();
+            while (collapsed.count() < readers - 1) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            for (Future<FruitResponseDTO> read : reads) {
+                assertNull(read.get(5, TimeUnit.SECONDS));
+            }
+
+            assertEquals(1, loads.get());
+            assertEquals(1.0, meterRegistry.get("fruit.loads").tag("result", "loaded").counter().count());
+            uncached.get(1L, id -> {
+                loads.incrementAndGet();
+                return null;
+            });
+            assertEquals(2, loads.get(), "nothing may be kept once the load completes");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("invalidate - a read after a write must not join a load that started before it")
+    void testInvalidate_NoCache_StartsNewLoad() throws Exception {
+        FruitCache uncached = new FruitCache(meterRegistry, 0, Duration.ofMinutes(1));
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+
+        try {
+            Future<FruitResponseDTO> staleRead = executor.submit(() -> uncached.get(1L, id -> {
+                loading.countDown();
+                await(release);
+                return new FruitResponseDTO(id, "Apple", 5);
+            }));
+            loading.await();
+
+            uncached.invalidate(1L);
+            FruitResponseDTO fresh = uncached.get(1L, id -> new FruitResponseDTO(id, "Green Apple", 10));
+            assertEquals("Green Apple", fresh.getName());
+
+            release.countDown();
+            assertEquals("Apple", staleRead.get(5, TimeUnit.SECONDS).getName());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package cat.itacademy.s04.s02.n01.fruit.controllers;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:admission",
+        "fruit.admission.trusted-proxies=127.0.0.1",
+        "fruit.admission.rate=0.1",
+        "fruit.admission.burst=2",
+        "fruit.admission.max-concurrent-writes=0"
+})
+@AutoConfigureMockMvc
+public class AdmissionControlIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    @DisplayName("GET /fruits over the client's rate - must return 429 with Retry-After, other clients unaffected")
+    void testRateLimited() throws Exception {
+        mockMvc.perform(get("/fruits").header("X-Client-Id", "flood")).andExpect(status().isOk());
+        mockMvc.perform(get("/fruits").header("X-Client-Id", "flood")).andExpect(status().isOk());
+
+        mockMvc.perform(get("/fruits").header("X-Client-Id", "flood"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "10"))
+                .andExpect(jsonPath("$.status").value(429));
+
+        mockMvc.perform(get("/fruits").header("X-Client-Id", "polite")).andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("GET /fruits from an untrusted address - must ignore X-Client-Id and limit the address")
+    void testClientHeaderIgnoredFromUntrustedAddress() throws Exception {
+        RequestPostProcessor untrusted = request -> {
+            request.setRemoteAddr("10.0.0.9");
+            return request;
+        };
+        mockMvc.perform(get("/fruits").header("X-Client-Id", "a").with(untrusted)).andExpect(status().isOk());
+        mockMvc.perform(get("/fruits").header("X-Client-Id", "b").with(untrusted)).andExpect(status().isOk());
+
+        mockMvc.perform(get("/fruits").header("X-Client-Id", "c").with(untrusted))
+                .andExpect(status().isTooManyRequests());
+    }
+
+    @Test
+    @DisplayName("POST /fruits with no write slot free - must return 503 with Retry-After at once")
+    void testWritesSaturated() throws Exception {
+        mockMvc.perform(post("/fruits")
+                        .header("X-Client-Id", "writer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Apple\",\"weightInKilos\":5}"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"))
+                .andExpect(jsonPath("$.status").value(503));
+    }
+
+    @Test
+    @DisplayName("GET /health - must never be limited")
+    void testHealthAlwaysAllowed() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            mockMvc.perform(get("/health").header("X-Client-Id", "prober")).andExpect(status().isOk());
+        }
+        mockMvc.perform(get("/actuator/health")).andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,128 @@
+package cat.itacademy.s04.s02.n01.fruit.controllers;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.BatchResponseDTO;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitBatchUpdateDTO;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitRequestDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class FruitBatchIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private BatchResponseDTO createFruits(List<FruitRequestDTO> requests) throws Exception {
+        String response = mockMvc.perform(post("/fruits/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requests)))
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(response, BatchResponseDTO.class);
+    }
+
+    @Test
+    @DisplayName("POST /fruits/batch - must create valid items and report invalid ones individually")
+    void testCreateFruits_MixedResults() throws Exception {
+        List<FruitRequestDTO> requests = List.of(
+                new FruitRequestDTO("Apple", 5),
+                new FruitRequestDTO("", 3),
+                new FruitRequestDTO("Orange", 7));
+
+        mockMvc.perform(post("/fruits/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requests)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.succeeded").value(2))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.results", hasSize(3)))
+                .andExpect(jsonPath("$.results[0].status").value(201))
+                .andExpect(jsonPath("$.results[0].id").isNumber())
+                .andExpect(jsonPath("$.results[1].status").value(400))
+                .andExpect(jsonPath("$.results[1].message").value(containsString("name")))
+                .andExpect(jsonPath("$.results[2].status").value(201));
+
+        mockMvc.perform(get("/fruits"))
+                .andExpect(jsonPath("$", hasSize(2)));
+    }
+
+    @Test
+    @DisplayName("POST /fruits/batch - must create more items than one JDBC batch")
+    void testCreateFruits_SeveralBatches() throws Exception {
+        List<FruitRequestDTO> requests = IntStream.range(0, 120)
+                .mapToObj(i -> new FruitRequestDTO("Fruit " + i, i + 1))
+                .toList();
+
+        BatchResponseDTO response = createFruits(requests);
+
+        assertEquals(120, response.succeeded());
+        mockMvc.perform(get("/fruits").param("limit", "1000"))
+                .andExpect(jsonPath("$", hasSize(120)));
+    }
+
+    @Test
+    @DisplayName("PUT /fruits/batch - must update existing items and report missing ones as 404")
+    void testUpdateFruits_MixedResults() throws Exception {
+        BatchResponseDTO created = createFruits(List.of(new FruitRequestDTO("Apple", 5)));
+        Long id = created.results().get(0).id();
+
+        List<FruitBatchUpdateDTO> updates = List.of(
+                new FruitBatchUpdateDTO(id, "Green Apple", 10),
+                new FruitBatchUpdateDTO(999_999L, "Ghost", 1),
+                new FruitBatchUpdateDTO(id, "", 10));
+
+        mockMvc.perform(put("/fruits/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updates)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.succeeded").value(1))
+                .andExpect(jsonPath("$.results[0].status").value(200))
+                .andExpect(jsonPath("$.results[1].status").value(404))
+                .andExpect(jsonPath("$.results[2].status").value(400));
+
+        mockMvc.perform(get("/fruits/" + id))
+                .andExpect(jsonPath("$.name").value("Green Apple"))
+                .andExpect(jsonPath("$.weightInKilos").value(10));
+    }
+
+    @Test
+    @DisplayName("DELETE /fruits/batch - must delete existing items and report missing ones as 404")
+    void testDeleteFruits_MixedResults() throws Exception {
+        BatchResponseDTO created = createFruits(List.of(
+                new FruitRequestDTO("Apple", 5),
+                new FruitRequestDTO("Banana", 3)));
+        Long id1 = created.results().get(0).id();
+        Long id2 = created.results().get(1).id();
+
+        mockMvc.perform(delete("/fruits/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(id1, 999_999L, id2))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.succeeded").value(2))
+                .andExpect(jsonPath("$.results[0].status").value(204))
+                .andExpect(jsonPath("$.results[1].status").value(404))
+                .andExpect(jsonPath("$.results[2].status").value(204));
+
+        mockMvc.perform(get("/fruits"))
+                .andExpect(jsonPath("$", hasSize(0)));
+    }
+}
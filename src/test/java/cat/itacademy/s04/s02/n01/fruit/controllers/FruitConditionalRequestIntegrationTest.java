@@ -0,0 +1,139 @@
+package cat.itacademy.s04.s02.n01.fruit.controllers;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitRequestDTO;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitResponseDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class FruitConditionalRequestIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Long createFruit() throws Exception {
+        String response = mockMvc.perform(post("/fruits")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new FruitRequestDTO("Apple", 5))))
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(response, FruitResponseDTO.class).getId();
+    }
+
+    private String etagOf(Long id) throws Exception {
+        return mockMvc.perform(get("/fruits/" + id))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    private String update(FruitRequestDTO request) throws Exception {
+        return objectMapper.writeValueAsString(request);
+    }
+
+    @Test
+    @DisplayName("PUT /fruits/{id} with current If-Match - must update and return the next ETag")
+    void testUpdateFruit_IfMatchCurrent() throws Exception {
+        Long id = createFruit();
+        String etag = etagOf(id);
+
+        mockMvc.perform(put("/fruits/" + id)
+                        .header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(update(new FruitRequestDTO("Green Apple", 10))))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+                .andExpect(jsonPath("$.name").value("Green Apple"))
+                .andExpect(jsonPath("$.version").doesNotExist());
+
+        mockMvc.perform(get("/fruits/" + id))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+                .andExpect(jsonPath("$.weightInKilos").value(10));
+    }
+
+    @Test
+    @DisplayName("PUT /fruits/{id} without If-Match - must return the ETag of the new version")
+    void testUpdateFruit_Unconditional_ReturnsNextETag() throws Exception {
+        Long id = createFruit();
+
+        mockMvc.perform(put("/fruits/" + id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(update(new FruitRequestDTO("Green Apple", 10))))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+
+        mockMvc.perform(get("/fruits/" + id))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+    }
+
+    @Test
+    @DisplayName("PUT /fruits/{id} with stale If-Match - must return 412 and keep the fruit")
+    void testUpdateFruit_IfMatchStale_ReturnsPreconditionFailed() throws Exception {
+        Long id = createFruit();
+        String etag = etagOf(id);
+
+        mockMvc.perform(put("/fruits/" + id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(update(new FruitRequestDTO("Banana", 3))))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(put("/fruits/" + id)
+                        .header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(update(new FruitRequestDTO("Green Apple", 10))))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.status").value(412))
+                .andExpect(jsonPath("$.message").exists());
+
+        mockMvc.perform(get("/fruits/" + id))
+                .andExpect(jsonPath("$.name").value("Banana"));
+    }
+
+    @Test
+    @DisplayName("PUT /fruits/{id} with If-Match on a missing id - must return 404")
+    void testUpdateFruit_IfMatchMissing_ReturnsNotFound() throws Exception {
+        mockMvc.perform(put("/fruits/999999")
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(update(new FruitRequestDTO("Ghost", 1))))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("DELETE /fruits/{id} with stale If-Match - must return 412, with current If-Match - must delete")
+    void testDeleteFruit_IfMatch() throws Exception {
+        Long id = createFruit();
+
+        mockMvc.perform(delete("/fruits/" + id).header(HttpHeaders.IF_MATCH, "\"7\""))
+                .andExpect(status().isPreconditionFailed());
+
+        mockMvc.perform(delete("/fruits/" + id).header(HttpHeaders.IF_MATCH, etagOf(id)))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/fruits/" + id))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("GET /fruits/{id} with matching If-None-Match - must return 304 Not Modified")
+    void testGetFruitById_IfNoneMatch_ReturnsNotModified() throws Exception {
+        Long id = createFruit();
+
+        mockMvc.perform(get("/fruits/" + id).header(HttpHeaders.IF_NONE_MATCH, etagOf(id)))
+                .andExpect(status().isNotModified());
+    }
+}
@@ -0,0 +1,175 @@
+package cat.itacademy.s04.s02.n01.fruit.controllers;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.datasource.url=jdbc:h2:mem:events")
+public class FruitEventIntegrationTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final List<InputStream> streams = new ArrayList<>();
+
+    // Not client.close() or the readers: both wait for streams that never end on their own.
+    @AfterEach
+    void closeAndClear() throws Exception {
+        for (InputStream stream : streams) {
+            stream.close();
+        }
+        client.shutdownNow();
+        jdbcTemplate.update("DELETE FROM fruits");
+    }
+
+    private record Event(String id, String name, String data) {
+    }
+
+    /**
+     * Opens {@code GET /fruits/events} and parses it on a background thread; returns once the
+     * response headers are in, i.e. once subscribed.
+     */
+    private BlockingQueue<Event> subscribe(String lastEventId) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/fruits/events"))
+                .header("Accept", "text/event-stream");
+        if (lastEventId != null) {
+            request.header(FruitEventController.LAST_EVENT_ID_HEADER, lastEventId);
+        }
+        HttpResponse<InputStream> response = client.send(request.build(),
+                HttpResponse.BodyHandlers.ofInputStream());
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Type").orElseThrow().startsWith("text/event-stream"));
+
+        streams.add(response.body());
+        BufferedReader reader = new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8));
+        BlockingQueue<Event> events = new LinkedBlockingQueue<>();
+        Thread.ofVirtual().start(() -> {
+            String id = null;
+            String name = null;
+            String data = null;
+            try {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    if (line.isEmpty()) {
+                        if (data != null) {
+                            events.add(new Event(id, name, data));
+                        }
+                        id = name = data = null;
+                    } else if (line.startsWith("id:")) {
+                        id = line.substring(3).trim();
+                    } else if (line.startsWith("event:")) {
+                        name = line.substring(6).trim();
+                    } else if (line.startsWith("data:")) {
+                        data = line.substring(5).trim();
+                    }
+                }
+            } catch (Exception closed) {
+                // the test is over
+            }
+        });
+        return events;
+    }
+
+    private static Event next(BlockingQueue<Event> events) throws InterruptedException {
+        Event event = events.poll(5, TimeUnit.SECONDS);
+        assertNotNull(event, "no event within 5s");
+        return event;
+    }
+
+    private HttpResponse<String> call(String method, String path, String json) throws Exception {
+        HttpRequest.BodyPublisher body = json == null
+                ? HttpRequest.BodyPublishers.noBody()
+                : HttpRequest.BodyPublishers.ofString(json);
+        return client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                        .header("Content-Type", "application/json")
+                        .method(method, body)
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    @DisplayName("GET /fruits/events - must stream created, updated and deleted events for committed changes")
+    void testStream() throws Exception {
+        BlockingQueue<Event> events = subscribe(null);
+
+        String created = call("POST", "/fruits", "{\"name\":\"Apple\",\"weightInKilos\":5}").body();
+        String id = created.replaceAll(".*\"id\":(\\d+).*", "$1");
+        assertEquals(200, call("PUT", "/fruits/" + id, "{\"name\":\"Apple\",\"weightInKilos\":6}").statusCode());
+        assertEquals(204, call("DELETE", "/fruits/" + id, null).statusCode());
+
+        Event createdEvent = next(events);
+        assertEquals("created", createdEvent.name());
+        assertEquals(created, createdEvent.data());
+        Event updatedEvent = next(events);
+        assertEquals("updated", updatedEvent.name());
+        assertTrue(updatedEvent.data().contains("\"weightInKilos\":6"));
+        assertEquals(Long.parseLong(createdEvent.id()) + 1, Long.parseLong(updatedEvent.id()));
+        Event deletedEvent = next(events);
+        assertEquals("deleted", deletedEvent.name());
+        assertEquals("{\"id\":" + id + "}", deletedEvent.data());
+    }
+
+    @Test
+    @DisplayName("GET /fruits/events - must stream a created event for every imported fruit")
+    void testImport() throws Exception {
+        BlockingQueue<Event> events = subscribe(null);
+
+        HttpResponse<String> imported = client.send(HttpRequest.newBuilder(
+                                URI.create("http://localhost:" + port + "/fruits/import"))
+                        .header("Content-Type", "text/csv")
+                        .POST(HttpRequest.BodyPublishers.ofString("Apple,5\nBanana,heavy\nPear,3\n"))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, imported.statusCode());
+
+        Event apple = next(events);
+        assertEquals("created", apple.name());
+        assertTrue(apple.data().contains("\"name\":\"Apple\""));
+        Long appleId = jdbcTemplate.queryForObject("SELECT id FROM fruits WHERE name = 'Apple'", Long.class);
+        assertTrue(apple.data().contains("\"id\":" + appleId + ","));
+        Event pear = next(events);
+        assertEquals("created", pear.name());
+        assertTrue(pear.data().contains("\"name\":\"Pear\""));
+    }
+
+    @Test
+    @DisplayName("GET /fruits/events with Last-Event-ID - must replay what was missed, or reset for an unknown id")
+    void testResume() throws Exception {
+        BlockingQueue<Event> events = subscribe(null);
+        call("POST", "/fruits", "{\"name\":\"Apple\",\"weightInKilos\":5}");
+        call("POST", "/fruits", "{\"name\":\"Pear\",\"weightInKilos\":3}");
+        Event first = next(events);
+        Event second = next(events);
+
+        BlockingQueue<Event> resumed = subscribe(first.id());
+        Event replayed = next(resumed);
+        assertEquals(second, replayed);
+
+        BlockingQueue<Event> expired = subscribe("1");
+        assertEquals("reset", next(expired).name());
+    }
+}
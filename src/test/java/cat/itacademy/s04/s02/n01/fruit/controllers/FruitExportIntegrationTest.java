@@ -0,0 +1,143 @@
+package cat.itacademy.s04.s02.n01.fruit.controllers;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitRequestDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class FruitExportIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private List<Long> createFruits() throws Exception {
+        String response = mockMvc.perform(post("/fruits/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(
+                                new FruitRequestDTO("Apple", 5),
+                                new FruitRequestDTO("Apple, \"Red\"", 7)))))
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response).findValuesAsText("id").stream().map(Long::valueOf).toList();
+    }
+
+    @Test
+    @DisplayName("GET /fruits/export - must write one JSON object per line in id order")
+    void testExportNdjson() throws Exception {
+        List<Long> ids = createFruits();
+
+        String body = mockMvc.perform(get("/fruits/export"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals("{\"id\":" + ids.get(0) + ",\"name\":\"Apple\",\"weightInKilos\":5}\n"
+                + "{\"id\":" + ids.get(1) + ",\"name\":\"Apple, \\\"Red\\\"\",\"weightInKilos\":7}\n", body);
+    }
+
+    @Test
+    @DisplayName("GET /fruits/export?format=csv - must write a header and quote names when needed")
+    void testExportCsv() throws Exception {
+        List<Long> ids = createFruits();
+
+        String body = mockMvc.perform(get("/fruits/export").param("format", "csv"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals("id,name,weightInKilos\n"
+                + ids.get(0) + ",Apple,5\n"
+                + ids.get(1) + ",\"Apple, \"\"Red\"\"\",7\n", body);
+    }
+
+    @Test
+    @DisplayName("GET /fruits/export?format=csv - must import back, and write a missing name as an empty field")
+    void testExportCsv_RoundTrip() throws Exception {
+        createFruits();
+        jdbcTemplate.update("INSERT INTO fruits (id, name, weight_in_kilos, version) VALUES (-1, NULL, 3, 0)");
+
+        String csv = mockMvc.perform(get("/fruits/export").param("format", "csv"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertEquals("-1,,3", csv.split("\n")[1]);
+
+        mockMvc.perform(post("/fruits/import")
+                        .contentType("text/csv")
+                        .content(csv))
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.errors[0].index").value(2));
+        mockMvc.perform(get("/fruits").param("name", "apple, \"red\""))
+                .andExpect(jsonPath("$.length()").value(2));
+    }
+
+    @Test
+    @DisplayName("GET /fruits/export - must not gzip when the client gives gzip a q-value of 0")
+    void testExport_GzipRefused() throws Exception {
+        createFruits();
+
+        for (String acceptEncoding : List.of("gzip;q=0", "gzip; q=0.0, identity", "*;q=0", "br")) {
+            mockMvc.perform(get("/fruits/export").header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding))
+                    .andExpect(status().isOk())
+                    .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+        }
+        mockMvc.perform(get("/fruits/export").header(HttpHeaders.ACCEPT_ENCODING, "br;q=1, gzip;q=0.5"))
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"));
+    }
+
+    @Test
+    @DisplayName("GET /fruits/export - must gzip the body when the client accepts it, and import it back")
+    void testExportGzip_RoundTrip() throws Exception {
+        createFruits();
+
+        byte[] compressed = mockMvc.perform(get("/fruits/export").header(HttpHeaders.ACCEPT_ENCODING, "gzip, br"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+        byte[] ndjson;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            ndjson = in.readAllBytes();
+        }
+
+        mockMvc.perform(post("/fruits/import")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(new String(ndjson, StandardCharsets.UTF_8)))
+                .andExpect(jsonPath("$.imported").value(2));
+        mockMvc.perform(get("/fruits/stats"))
+                .andExpect(jsonPath("$.count").value(4));
+    }
+
+    @Test
+    @DisplayName("GET /fruits/export?format=xml - must return 400 Bad Request")
+    void testExport_InvalidFormat_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/fruits/export").param("format", "xml"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("The format must be ndjson or csv."));
+    }
+}
@@ -0,0 +1,187 @@
+package cat.itacademy.s04.s02.n01.fruit.controllers;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitResponseDTO;
+import cat.itacademy.s04.s02.n01.fruit.repository.FruitRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * {@code POST /fruits} with an {@code Idempotency-Key}. Inserts are slowed down to 200 ms so that
+ * concurrent duplicates really arrive while the first request is running.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:idempotency",
+        "fruit.admission.enabled=false"
+})
+@AutoConfigureMockMvc
+public class FruitIdempotencyIntegrationTest {
+
+    private static final long INSERT_MILLIS = 200;
+
+    @TestConfiguration
+    static class SlowInserts {
+
+        @Bean
+        static BeanPostProcessor slowSave() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (!(bean instanceof FruitRepository repository)) {
+                        return bean;
+                    }
+                    return Proxy.newProxyInstance(FruitRepository.class.getClassLoader(),
+                            new Class<?>[]{FruitRepository.class}, (proxy, method, args) -> {
+                                if (method.getName().equals("save")) {
+                                    Thread.sleep(INSERT_MILLIS);
+                                }
+                                try {
+                                    return method.invoke(repository, args);
+                                } catch (InvocationTargetException e) {
+                                    throw e.getCause();
+                                }
+                            });
+                }
+            };
+        }
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    void clear() {
+        jdbcTemplate.update("DELETE FROM fruits");
+    }
+
+    private MockHttpServletResponse create(String key, String body) throws Exception {
+        return mockMvc.perform(post("/fruits")
+                        .header(FruitController.IDEMPOTENCY_KEY_HEADER, key)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andReturn().getResponse();
+    }
+
+    private long rows() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM fruits", Long.class);
+    }
+
+    private double idempotency(String result) {
+        return meterRegistry.get("fruit.idempotency").tag("result", result).counter().count();
+    }
+
+    @Test
+    @DisplayName("POST /fruits retried with the same Idempotency-Key - must return the original 201 and insert once")
+    void testRetryReturnsOriginal() throws Exception {
+        String body = "{\"name\":\"Apple\",\"weightInKilos\":5}";
+
+        MockHttpServletResponse first = create("retry-1", body);
+        MockHttpServletResponse retry = create("retry-1", body);
+
+        assertEquals(201, first.getStatus());
+        assertEquals(201, retry.getStatus());
+        assertEquals(first.getContentAsString(), retry.getContentAsString());
+        assertNull(first.getHeader(FruitController.IDEMPOTENT_REPLAYED_HEADER));
+        assertEquals("true", retry.getHeader(FruitController.IDEMPOTENT_REPLAYED_HEADER));
+        assertEquals(1, rows());
+
+        assertEquals(201, create("retry-2", body).getStatus());
+        assertEquals(2, rows());
+    }
+
+    @Test
+    @DisplayName("POST /fruits reusing an Idempotency-Key for another body - must return 422 and insert nothing")
+    void testKeyReusedForAnotherBody() throws Exception {
+        assertEquals(201, create("reused", "{\"name\":\"Apple\",\"weightInKilos\":5}").getStatus());
+
+        mockMvc.perform(post("/fruits")
+                        .header(FruitController.IDEMPOTENCY_KEY_HEADER, "reused")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Banana\",\"weightInKilos\":3}"))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.status").value(422));
+        assertEquals(1, rows());
+    }
+
+    @Test
+    @DisplayName("POST /fruits with a blank Idempotency-Key - must return 400")
+    void testBlankKey() throws Exception {
+        assertEquals(400, create(" ", "{\"name\":\"Apple\",\"weightInKilos\":5}").getStatus());
+        assertEquals(0, rows());
+    }
+
+    @Test
+    @DisplayName("POST /fruits sent concurrently with one Idempotency-Key - must insert once and give everyone that fruit")
+    void testConcurrentDuplicates() throws Exception {
+        int callers = 20;
+        double createdBefore = idempotency("created");
+        double replayedBefore = idempotency("replayed");
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<MockHttpServletResponse>> responses = new ArrayList<>();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(callers)) {
+            for (int i = 0; i < callers; i++) {
+                responses.add(executor.submit(() -> {
+                    start.await();
+                    return create("concurrent", "{\"name\":\"Apple\",\"weightInKilos\":5}");
+                }));
+            }
+            start.countDown();
+
+            Long id = null;
+            int replays = 0;
+            for (Future<MockHttpServletResponse> future : responses) {
+                MockHttpServletResponse response = future.get(30, TimeUnit.SECONDS);
+                assertEquals(201, response.getStatus());
+                FruitResponseDTO fruit = objectMapper.readValue(response.getContentAsString(), FruitResponseDTO.class);
+                if (id == null) {
+                    id = fruit.getId();
+                }
+                assertEquals(id, fruit.getId());
+                if (response.getHeader(FruitController.IDEMPOTENT_REPLAYED_HEADER) != null) {
+                    replays++;
+                }
+            }
+            assertEquals(callers - 1, replays);
+        }
+
+        assertEquals(1, rows());
+        assertEquals(1, idempotency("created") - createdBefore);
+        assertEquals(callers - 1, idempotency("replayed") - replayedBefore);
+    }
+}
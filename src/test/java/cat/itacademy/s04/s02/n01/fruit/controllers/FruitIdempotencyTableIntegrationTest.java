@@ -0,0 +1,146 @@
+package cat.itacademy.s04.s02.n01.fruit.controllers;
+
+import cat.itacademy.s04.s02.n01.fruit.repository.FruitRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * {@code POST /fruits} with an {@code Idempotency-Key} and {@code fruit.idempotency.store=jdbc}. Keys
+ * written straight into the table stand for another instance, or for this one before a restart.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:idempotency-table",
+        "fruit.admission.enabled=false",
+        "fruit.idempotency.store=jdbc"
+})
+@AutoConfigureMockMvc
+public class FruitIdempotencyTableIntegrationTest {
+
+    private static final String APPLE = "{\"name\":\"Apple\",\"weightInKilos\":5}";
+
+    // Run by the next FruitRepository.save, inside the request's transaction.
+    private static volatile Runnable beforeSave;
+
+    @TestConfiguration
+    static class SaveHook {
+
+        @Bean
+        static BeanPostProcessor saveHook() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (!(bean instanceof FruitRepository repository)) {
+                        return bean;
+                    }
+                    return Proxy.newProxyInstance(FruitRepository.class.getClassLoader(),
+                            new Class<?>[]{FruitRepository.class}, (proxy, method, args) -> {
+                                Runnable hook = beforeSave;
+                                if (method.getName().equals("save") && hook != null) {
+                                    beforeSave = null;
+                                    hook.run();
+                                }
+                                try {
+                                    return method.invoke(repository, args);
+                                } catch (InvocationTargetException e) {
+                                    throw e.getCause();
+                                }
+                            });
+                }
+            };
+        }
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void clear() {
+        beforeSave = null;
+        jdbcTemplate.update("DELETE FROM fruits");
+        jdbcTemplate.update("DELETE FROM fruit_idempotency_keys");
+    }
+
+    private ResultActions create(String key, String body) throws Exception {
+        return mockMvc.perform(post("/fruits")
+                .header(FruitController.IDEMPOTENCY_KEY_HEADER, key)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body));
+    }
+
+    // A fruit and its key committed by someone else, on another connection.
+    private void storeElsewhere(String key, long fruitId) {
+        jdbcTemplate.update("INSERT INTO fruits (id, name, weight_in_kilos) VALUES (?, 'Apple', 5)", fruitId);
+        jdbcTemplate.update("INSERT INTO fruit_idempotency_keys "
+                        + "(idempotency_key, name, weight_in_kilos, fruit_id, created_at) VALUES (?, 'Apple', 5, ?, ?)",
+                key, fruitId, Timestamp.from(Instant.now()));
+    }
+
+    private long rows() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM fruits", Long.class);
+    }
+
+    @Test
+    @DisplayName("POST /fruits with a new Idempotency-Key - must store the key with the fruit")
+    void testKeyStored() throws Exception {
+        String body = create("stored", APPLE)
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+
+        Long id = jdbcTemplate.queryForObject(
+                "SELECT fruit_id FROM fruit_idempotency_keys WHERE idempotency_key = 'stored'", Long.class);
+        assertEquals("{\"id\":" + id + ",\"name\":\"Apple\",\"weightInKilos\":5}", body);
+    }
+
+    @Test
+    @DisplayName("POST /fruits with a key only in the table - must replay its fruit, or return 422 for another body")
+    void testKeyFromTable() throws Exception {
+        storeElsewhere("restarted", 9001);
+
+        create("restarted", APPLE)
+                .andExpect(status().isCreated())
+                .andExpect(header().string(FruitController.IDEMPOTENT_REPLAYED_HEADER, "true"))
+                .andExpect(jsonPath("$.id").value(9001));
+        storeElsewhere("restarted-other", 9002);
+        create("restarted-other", "{\"name\":\"Banana\",\"weightInKilos\":3}")
+                .andExpect(status().isUnprocessableEntity());
+
+        assertEquals(2, rows());
+    }
+
+    @Test
+    @DisplayName("POST /fruits racing another instance on one key - must roll back its insert and replay the other's fruit")
+    void testKeyStoredConcurrently() throws Exception {
+        beforeSave = () -> CompletableFuture.runAsync(() -> storeElsewhere("raced", 9003)).join();
+
+        create("raced", APPLE)
+                .andExpect(status().isCreated())
+                .andExpect(header().string(FruitController.IDEMPOTENT_REPLAYED_HEADER, "true"))
+                .andExpect(jsonPath("$.id").value(9003));
+
+        assertEquals(1, rows());
+    }
+}
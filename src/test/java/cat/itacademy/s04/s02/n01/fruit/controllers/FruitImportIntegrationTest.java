@@ -0,0 +1,145 @@
+package cat.itacademy.s04.s02.n01.fruit.controllers;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.Matchers.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class FruitImportIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    @DisplayName("POST /fruits/import (NDJSON) - must import valid lines and report the others by line number")
+    void testImportNdjson_MixedLines() throws Exception {
+        String body = """
+                {"name":"Apple","weightInKilos":5}
+                {"name":"","weightInKilos":3}
+
+                {"name":"Orange",
+                {"name":"Banana","weightInKilos":0}
+                {"name":"Pear","weightInKilos":2}
+                """;
+
+        mockMvc.perform(post("/fruits/import")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lines").value(6))
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.failed").value(3))
+                .andExpect(jsonPath("$.errors[*].index", contains(2, 4, 5)))
+                .andExpect(jsonPath("$.errors[0].message").value("The name cannot be empty."))
+                .andExpect(jsonPath("$.errors[1].message").value(startsWith("Malformed JSON")))
+                .andExpect(jsonPath("$.errorsTruncated").value(false));
+
+        mockMvc.perform(get("/fruits"))
+                .andExpect(jsonPath("$[*].name", contains("Apple", "Pear")));
+    }
+
+    @Test
+    @DisplayName("POST /fruits/import (CSV) - must skip the header and read quoted names")
+    void testImportCsv() throws Exception {
+        String body = String.join("\n",
+                "name,weightInKilos",
+                "Apple,5",
+                "\"Apple, \"\"Red\"\"\",7",
+                "Banana,heavy",
+                "Orange");
+
+        mockMvc.perform(post("/fruits/import")
+                        .contentType("text/csv")
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.failed").value(2))
+                .andExpect(jsonPath("$.errors[0].index").value(4))
+                .andExpect(jsonPath("$.errors[0].message").value("The weight must be a whole number."))
+                .andExpect(jsonPath("$.errors[1].index").value(5));
+
+        mockMvc.perform(get("/fruits").param("name", "apple, \"red\""))
+                .andExpect(jsonPath("$[0].weightInKilos").value(7));
+    }
+
+    @Test
+    @DisplayName("POST /fruits/import - must commit several chunks and cap the reported errors")
+    void testImport_SeveralChunks() throws Exception {
+        String body = IntStream.range(0, 2_500)
+                .mapToObj(i -> i % 10 == 0
+                        ? "{\"name\":\"\",\"weightInKilos\":1}"
+                        : "{\"name\":\"Fruit " + i + "\",\"weightInKilos\":" + (i % 100 + 1) + "}")
+                .collect(Collectors.joining("\n"));
+
+        mockMvc.perform(post("/fruits/import")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2_250))
+                .andExpect(jsonPath("$.failed").value(250))
+                .andExpect(jsonPath("$.errors", hasSize(100)))
+                .andExpect(jsonPath("$.errorsTruncated").value(true));
+
+        mockMvc.perform(get("/fruits/stats"))
+                .andExpect(jsonPath("$.count").value(2_250));
+    }
+
+    @Test
+    @DisplayName("POST /fruits/import - must reject a line over fruit.import.max-line-length and read on")
+    void testImport_LineTooLong() throws Exception {
+        String body = String.join("\n",
+                "Apple,5",
+                "x".repeat(1_000_000) + ",3",
+                "Pear,2");
+
+        mockMvc.perform(post("/fruits/import")
+                        .contentType("text/csv")
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lines").value(3))
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.errors[0].index").value(2))
+                .andExpect(jsonPath("$.errors[0].message").value("The line is longer than 4096 characters."));
+    }
+
+    @Test
+    @DisplayName("POST /fruits/import - a chunk the database rejects must return 500 with the fruits committed before it")
+    void testImport_DatabaseFailure_ReportsCommittedChunks() throws Exception {
+        // Valid for the API, but longer than the name column.
+        String body = IntStream.range(0, 1_500)
+                .mapToObj(i -> (i == 1_200 ? "y".repeat(300) : "Fruit " + i) + "," + (i % 100 + 1))
+                .collect(Collectors.joining("\n"));
+
+        mockMvc.perform(post("/fruits/import")
+                        .contentType("text/csv")
+                        .content(body))
+                .andExpect(status().isInternalServerError())
+                .andExpect(jsonPath("$.status").value(500))
+                .andExpect(jsonPath("$.imported").value(1_000))
+                .andExpect(jsonPath("$.lines").value(1_500))
+                .andExpect(jsonPath("$.message").value(containsString("1000 fruits from earlier chunks were committed")));
+    }
+
+    @Test
+    @DisplayName("POST /fruits/import - must reject other content types with 415")
+    void testImport_UnsupportedMediaType() throws Exception {
+        mockMvc.perform(post("/fruits/import")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isUnsupportedMediaType());
+    }
+}
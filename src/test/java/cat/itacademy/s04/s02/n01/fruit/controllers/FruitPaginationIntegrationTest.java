@@ -0,0 +1,115 @@
+package cat.itacademy.s04.s02.n01.fruit.controllers;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitRequestDTO;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitResponseDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class FruitPaginationIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private List<Long> createFruits(String... names) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (String name : names) {
+            String response = mockMvc.perform(post("/fruits")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(new FruitRequestDTO(name, 5))))
+                    .andReturn().getResponse().getContentAsString();
+            ids.add(objectMapper.readValue(response, FruitResponseDTO.class).getId());
+        }
+        // /fruits/stream reads with plain JDBC, which does not flush the test transaction's inserts.
+        entityManager.flush();
+        return ids;
+    }
+
+    @Test
+    @DisplayName("GET /fruits?limit=N - must return the first page and the next cursor header")
+    void testGetFruits_FirstPage() throws Exception {
+        List<Long> ids = createFruits("Apple", "Banana", "Orange");
+
+        mockMvc.perform(get("/fruits").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].name").value("Apple"))
+                .andExpect(jsonPath("$[1].name").value("Banana"))
+                .andExpect(header().string(FruitController.NEXT_CURSOR_HEADER, ids.get(1).toString()));
+    }
+
+    @Test
+    @DisplayName("GET /fruits?after=X&limit=N - must return the page after the cursor without next cursor at the end")
+    void testGetFruits_LastPage() throws Exception {
+        List<Long> ids = createFruits("Apple", "Banana", "Orange");
+
+        mockMvc.perform(get("/fruits")
+                        .param("after", ids.get(1).toString())
+                        .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].name").value("Orange"))
+                .andExpect(header().doesNotExist(FruitController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    @DisplayName("GET /fruits?limit=0 - must return 400 Bad Request")
+    void testGetFruits_InvalidLimit_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/fruits").param("limit", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value(400))
+                .andExpect(jsonPath("$.message").exists());
+    }
+
+    @Test
+    @DisplayName("GET /fruits/stream - must stream every fruit as a JSON array")
+    void testStreamFruits_Json() throws Exception {
+        createFruits("Apple", "Banana", "Orange");
+
+        mockMvc.perform(get("/fruits/stream").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[2].name").value("Orange"));
+    }
+
+    @Test
+    @DisplayName("GET /fruits/stream - must stream one JSON document per line as NDJSON")
+    void testStreamFruits_Ndjson() throws Exception {
+        createFruits("Apple", "Banana");
+
+        String body = mockMvc.perform(get("/fruits/stream").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("Apple", objectMapper.readValue(lines[0], FruitResponseDTO.class).getName());
+        assertEquals("Banana", objectMapper.readValue(lines[1], FruitResponseDTO.class).getName());
+    }
+}
@@ -0,0 +1,94 @@
+package cat.itacademy.s04.s02.n01.fruit.controllers;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitRequestDTO;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitResponseDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = "fruit.response-cache.enabled=true")
+@AutoConfigureMockMvc
+@Transactional
+public class FruitResponseCacheIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Long createFruit(String name, int weight) throws Exception {
+        String response = mockMvc.perform(post("/fruits")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new FruitRequestDTO(name, weight))))
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(response, FruitResponseDTO.class).getId();
+    }
+
+    @Test
+    @DisplayName("GET /fruits/{id} - must return the cached JSON with a strong ETag")
+    void testGetFruitById_ReturnsETag() throws Exception {
+        Long id = createFruit("Apple", 5);
+
+        mockMvc.perform(get("/fruits/" + id))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(header().string(HttpHeaders.ETAG, startsWith("\"")))
+                .andExpect(jsonPath("$.id").value(id))
+                .andExpect(jsonPath("$.name").value("Apple"))
+                .andExpect(jsonPath("$.weightInKilos").value(5));
+    }
+
+    @Test
+    @DisplayName("GET /fruits/{id} - must return 304 Not Modified when If-None-Match matches")
+    void testGetFruitById_IfNoneMatch_ReturnsNotModified() throws Exception {
+        Long id = createFruit("Apple", 5);
+
+        String etag = mockMvc.perform(get("/fruits/" + id))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/fruits/" + id).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+    }
+
+    @Test
+    @DisplayName("PUT /fruits/{id} - must invalidate the cached response and its ETag")
+    void testUpdateFruit_InvalidatesCachedResponse() throws Exception {
+        Long id = createFruit("Apple", 5);
+
+        String etag = mockMvc.perform(get("/fruits/" + id))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(put("/fruits/" + id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new FruitRequestDTO("Green Apple", 10))))
+                .andExpect(status().isOk());
+
+        String newEtag = mockMvc.perform(get("/fruits/" + id).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Green Apple"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(etag, newEtag);
+    }
+
+    @Test
+    @DisplayName("GET /fruits/{id} - must keep the 404 contract when the response cache is enabled")
+    void testGetFruitById_NotFound() throws Exception {
+        mockMvc.perform(get("/fruits/999999"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.status").value(404));
+    }
+}
@@ -0,0 +1,108 @@
+package cat.itacademy.s04.s02.n01.fruit.controllers;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitRequestDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class FruitSearchIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void createFruits() throws Exception {
+        List<FruitRequestDTO> requests = List.of(
+                new FruitRequestDTO("Apple", 5),
+                new FruitRequestDTO("Green Apple", 8),
+                new FruitRequestDTO("apricot", 2),
+                new FruitRequestDTO("APPLE", 12),
+                new FruitRequestDTO("100%_Banana", 3));
+
+        mockMvc.perform(post("/fruits/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requests)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("GET /fruits?name=X - must match the whole name ignoring case")
+    void testGetFruits_ByName() throws Exception {
+        mockMvc.perform(get("/fruits").param("name", "aPpLe"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[*].name", contains("Apple", "APPLE")));
+    }
+
+    @Test
+    @DisplayName("GET /fruits?namePrefix=X - must match the start of the name ignoring case")
+    void testGetFruits_ByNamePrefix() throws Exception {
+        mockMvc.perform(get("/fruits").param("namePrefix", "AP"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].name", contains("Apple", "apricot", "APPLE")));
+    }
+
+    @Test
+    @DisplayName("GET /fruits?namePrefix=X - must treat LIKE wildcards literally")
+    void testGetFruits_ByNamePrefix_EscapesWildcards() throws Exception {
+        mockMvc.perform(get("/fruits").param("namePrefix", "100%_"))
+                .andExpect(jsonPath("$[*].name", contains("100%_Banana")));
+
+        mockMvc.perform(get("/fruits").param("namePrefix", "%"))
+                .andExpect(jsonPath("$", hasSize(0)));
+    }
+
+    @Test
+    @DisplayName("GET /fruits?minWeight=X&maxWeight=Y - must return fruits within the inclusive range")
+    void testGetFruits_ByWeightRange() throws Exception {
+        mockMvc.perform(get("/fruits")
+                        .param("minWeight", "3")
+                        .param("maxWeight", "8"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].name", contains("Apple", "Green Apple", "100%_Banana")));
+    }
+
+    @Test
+    @DisplayName("GET /fruits?namePrefix=X&minWeight=Y&limit=N - must combine filters with keyset pages")
+    void testGetFruits_CombinedFiltersPaged() throws Exception {
+        String cursor = mockMvc.perform(get("/fruits")
+                        .param("namePrefix", "ap")
+                        .param("minWeight", "3")
+                        .param("limit", "1"))
+                .andExpect(jsonPath("$[*].name", contains("Apple")))
+                .andReturn().getResponse().getHeader(FruitController.NEXT_CURSOR_HEADER);
+
+        mockMvc.perform(get("/fruits")
+                        .param("namePrefix", "ap")
+                        .param("minWeight", "3")
+                        .param("after", cursor))
+                .andExpect(jsonPath("$[*].name", contains("APPLE")));
+    }
+
+    @Test
+    @DisplayName("GET /fruits?minWeight=0 - must return 400 Bad Request")
+    void testGetFruits_InvalidWeight_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/fruits").param("minWeight", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value(400));
+    }
+}
@@ -0,0 +1,98 @@
+package cat.itacademy.s04.s02.n01.fruit.controllers;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitRequestDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class FruitStatsIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private void createFruits() throws Exception {
+        List<FruitRequestDTO> requests = List.of(
+                new FruitRequestDTO("Apple", 5),
+                new FruitRequestDTO("Banana", 3),
+                new FruitRequestDTO("Apple", 7),
+                new FruitRequestDTO("Orange", 10));
+
+        mockMvc.perform(post("/fruits/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requests)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("GET /fruits/stats - must return zero totals when there are no fruits")
+    void testGetTotals_Empty() throws Exception {
+        mockMvc.perform(get("/fruits/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(0))
+                .andExpect(jsonPath("$.totalWeightInKilos").value(0));
+    }
+
+    @Test
+    @DisplayName("GET /fruits/stats - must return the count and total weight")
+    void testGetTotals() throws Exception {
+        createFruits();
+
+        mockMvc.perform(get("/fruits/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(4))
+                .andExpect(jsonPath("$.totalWeightInKilos").value(25));
+    }
+
+    @Test
+    @DisplayName("GET /fruits/stats/by-name - must group by name ordered by total weight")
+    void testGetStatsByName() throws Exception {
+        createFruits();
+
+        mockMvc.perform(get("/fruits/stats/by-name"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[0].name").value("Apple"))
+                .andExpect(jsonPath("$[0].count").value(2))
+                .andExpect(jsonPath("$[0].totalWeightInKilos").value(12))
+                .andExpect(jsonPath("$[1].name").value("Orange"))
+                .andExpect(jsonPath("$[2].name").value("Banana"));
+    }
+
+    @Test
+    @DisplayName("GET /fruits/stats/heaviest?limit=N - must return the N heaviest fruits")
+    void testGetHeaviestFruits() throws Exception {
+        createFruits();
+
+        mockMvc.perform(get("/fruits/stats/heaviest").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].name").value("Orange"))
+                .andExpect(jsonPath("$[1].weightInKilos").value(7));
+    }
+
+    @Test
+    @DisplayName("GET /fruits/stats/heaviest?limit=0 - must return 400 Bad Request")
+    void testGetHeaviestFruits_InvalidLimit_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/fruits/stats/heaviest").param("limit", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value(400));
+    }
+}
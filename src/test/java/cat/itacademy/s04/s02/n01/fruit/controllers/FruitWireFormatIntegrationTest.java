@@ -0,0 +1,141 @@
+package cat.itacademy.s04.s02.n01.fruit.controllers;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitRequestDTO;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitResponseDTO;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.datasource.url=jdbc:h2:mem:wire-format",
+                "fruit.response-cache.enabled=true"
+        })
+public class FruitWireFormatIntegrationTest {
+
+    private static final String CBOR = "application/cbor";
+    private static final String SMILE = WireFormatConfig.APPLICATION_SMILE_VALUE;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final ObjectMapper cbor = Jackson2ObjectMapperBuilder.cbor().build();
+    private final ObjectMapper smile = Jackson2ObjectMapperBuilder.smile().build();
+    private final ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+
+    @AfterEach
+    void clear() {
+        client.close();
+        jdbcTemplate.update("DELETE FROM fruits");
+    }
+
+    private HttpResponse<byte[]> send(HttpRequest.Builder request) throws Exception {
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path));
+    }
+
+    private void seed(int count) {
+        jdbcTemplate.update("INSERT INTO fruits (id, name, weight_in_kilos, version) "
+                + "SELECT x, 'Fruit ' || x, MOD(x, 100) + 1, 0 FROM SYSTEM_RANGE(1000001, ?)", 1_000_000 + count);
+    }
+
+    @Test
+    @DisplayName("POST /fruits in Smile, GET /fruits/{id} in CBOR - must round-trip with JSON as the default")
+    void testBinaryRoundTrip() throws Exception {
+        HttpResponse<byte[]> created = send(request("/fruits")
+                .header("Content-Type", SMILE)
+                .header("Accept", SMILE)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(smile.writeValueAsBytes(new FruitRequestDTO("Apple", 5)))));
+        assertEquals(201, created.statusCode());
+        assertEquals(SMILE, created.headers().firstValue("Content-Type").orElseThrow());
+        long id = smile.readValue(created.body(), FruitResponseDTO.class).getId();
+
+        // Twice: the second read comes from the pre-serialized JSON cache, which a CBOR caller must not get.
+        for (int i = 0; i < 2; i++) {
+            HttpResponse<byte[]> response = send(request("/fruits/" + id).header("Accept", CBOR));
+            assertEquals(200, response.statusCode());
+            assertEquals(CBOR, response.headers().firstValue("Content-Type").orElseThrow());
+            assertEquals("Apple", cbor.readValue(response.body(), FruitResponseDTO.class).getName());
+            assertTrue(response.headers().firstValue("ETag").isPresent());
+        }
+
+        HttpResponse<byte[]> plain = send(request("/fruits/" + id));
+        assertTrue(plain.headers().firstValue("Content-Type").orElseThrow().startsWith("application/json"));
+        assertEquals("Apple", json.readValue(plain.body(), FruitResponseDTO.class).getName());
+
+        HttpResponse<byte[]> missing = send(request("/fruits/999").header("Accept", CBOR));
+        assertEquals(404, missing.statusCode());
+        assertEquals(404, cbor.readTree(missing.body()).get("status").asInt());
+    }
+
+    @Test
+    @DisplayName("GET /fruits - must return the same list as JSON, CBOR and Smile, the binary ones smaller")
+    void testListFormats() throws Exception {
+        seed(100);
+        TypeReference<List<FruitResponseDTO>> listType = new TypeReference<>() {
+        };
+
+        HttpResponse<byte[]> asJson = send(request("/fruits").header("Accept", "application/json"));
+        HttpResponse<byte[]> asCbor = send(request("/fruits").header("Accept", CBOR));
+        HttpResponse<byte[]> asSmile = send(request("/fruits").header("Accept", SMILE));
+
+        List<FruitResponseDTO> fromJson = json.readValue(asJson.body(), listType);
+        List<FruitResponseDTO> fromCbor = cbor.readValue(asCbor.body(), listType);
+        List<FruitResponseDTO> fromSmile = smile.readValue(asSmile.body(), listType);
+        assertEquals(100, fromJson.size());
+        for (int i = 0; i < fromJson.size(); i++) {
+            assertEquals(fromJson.get(i).getName(), fromCbor.get(i).getName());
+            assertEquals(fromJson.get(i).getName(), fromSmile.get(i).getName());
+            assertEquals(fromJson.get(i).getWeightInKilos(), fromSmile.get(i).getWeightInKilos());
+        }
+        assertTrue(asCbor.body().length < asJson.body().length);
+        assertTrue(asSmile.body().length < asCbor.body().length);
+        assertTrue(asCbor.headers().allValues("Vary").stream()
+                .flatMap(vary -> Arrays.stream(vary.split(",")))
+                .anyMatch(header -> header.trim().equalsIgnoreCase("Accept")));
+    }
+
+    @Test
+    @DisplayName("GET /fruits with Accept-Encoding: gzip - must compress large bodies only")
+    void testCompression() throws Exception {
+        seed(100);
+
+        HttpResponse<byte[]> large = send(request("/fruits").header("Accept-Encoding", "gzip"));
+        assertEquals("gzip", large.headers().firstValue("Content-Encoding").orElseThrow());
+        try (GZIPInputStream body = new GZIPInputStream(new ByteArrayInputStream(large.body()))) {
+            assertEquals(100, json.readTree(body).size());
+        }
+
+        HttpResponse<byte[]> small = send(request("/fruits?limit=1").header("Accept-Encoding", "gzip"));
+        assertTrue(small.headers().firstValue("Content-Encoding").isEmpty());
+        assertEquals(1, json.readTree(small.body()).size());
+
+        HttpResponse<byte[]> identity = send(request("/fruits"));
+        assertTrue(identity.headers().firstValue("Content-Encoding").isEmpty());
+    }
+}
@@ -0,0 +1,309 @@
+package cat.itacademy.s04.s02.n01.fruit.controllers;
+
+import cat.itacademy.s04.s02.n01.fruit.FruitApiH2Application;
+import cat.itacademy.s04.s02.n01.fruit.cache.FruitWriteBehindBuffer;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitRequestDTO;
+import cat.itacademy.s04.s02.n01.fruit.service.FruitService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.h2.api.Trigger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:writebehind",
+        "fruit.write-behind.enabled=true",
+        "fruit.write-behind.flush-interval=1h",
+        "fruit.write-behind.max-pending=5"
+})
+@AutoConfigureMockMvc
+public class FruitWriteBehindIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private FruitService fruitService;
+
+    @Autowired
+    private FruitWriteBehindBuffer writeBehind;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    void flushAndClear() {
+        writeBehind.flush();
+        jdbcTemplate.update("DELETE FROM fruits");
+    }
+
+    private Long createFruit(String name, int weightInKilos) {
+        return fruitService.createFruit(new FruitRequestDTO(name, weightInKilos)).getId();
+    }
+
+    private void bufferedPut(Long id, String name, int weightInKilos) throws Exception {
+        mockMvc.perform(put("/fruits/{id}", id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new FruitRequestDTO(name, weightInKilos))))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(jsonPath("$.weightInKilos").value(weightInKilos));
+    }
+
+    private double publishedEvents() {
+        return meterRegistry.counter("fruit.events.published").count();
+    }
+
+    private Map<String, Object> row(Long id) {
+        return jdbcTemplate.queryForMap("SELECT weight_in_kilos, version FROM fruits WHERE id = ?", id);
+    }
+
+    @Test
+    @DisplayName("write-behind PUT - must coalesce updates, serve them to reads and write the last one on flush")
+    void testUpdatesAreCoalescedAndFlushed() throws Exception {
+        Long id = createFruit("Apple", 5);
+        double coalescedBefore = meterRegistry.counter("fruit.write_behind.updates", "result", "coalesced").count();
+
+        bufferedPut(id, "Apple", 6);
+        bufferedPut(id, "Apple", 7);
+
+        assertEquals(Map.of("WEIGHT_IN_KILOS", 5, "VERSION", 0L), row(id));
+        assertEquals(1.0, meterRegistry.get("fruit.write_behind.pending").gauge().value());
+        assertEquals(coalescedBefore + 1,
+                meterRegistry.counter("fruit.write_behind.updates", "result", "coalesced").count());
+        mockMvc.perform(get("/fruits/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+                .andExpect(jsonPath("$.weightInKilos").value(7));
+        mockMvc.perform(get("/fruits").param("namePrefix", "apple"))
+                .andExpect(jsonPath("$[0].weightInKilos").value(7));
+        mockMvc.perform(get("/fruits/export"))
+                .andExpect(content().string(containsString("\"weightInKilos\":7")));
+
+        double eventsBefore = publishedEvents();
+        writeBehind.flush();
+        assertEquals(eventsBefore + 1, publishedEvents());
+
+        assertEquals(Map.of("WEIGHT_IN_KILOS", 7, "VERSION", 1L), row(id));
+        assertEquals(0.0, meterRegistry.get("fruit.write_behind.pending").gauge().value());
+        mockMvc.perform(get("/fruits/{id}", id))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+                .andExpect(jsonPath("$.weightInKilos").value(7));
+    }
+
+    @Test
+    @DisplayName("write-behind - filters must be evaluated on the buffered values")
+    void testFiltersSeeBufferedValues() throws Exception {
+        Long light = createFruit("Apple", 5);
+        Long heavy = createFruit("Pear", 50);
+
+        bufferedPut(light, "Apple", 60);
+        bufferedPut(heavy, "Pear", 6);
+
+        mockMvc.perform(get("/fruits").param("minWeight", "10"))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(light))
+                .andExpect(jsonPath("$[0].weightInKilos").value(60));
+        mockMvc.perform(get("/fruits").param("minWeight", "10").param("limit", "1"))
+                .andExpect(jsonPath("$[0].id").value(light));
+        mockMvc.perform(get("/fruits").param("name", "pear").param("maxWeight", "10"))
+                .andExpect(jsonPath("$[*].id", contains(heavy.intValue())));
+        mockMvc.perform(get("/fruits").param("name", "pear").param("minWeight", "10"))
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    @DisplayName("write-behind - stats must include buffered updates, and a stale flush must publish no event")
+    void testStatsAndStaleFlush() throws Exception {
+        Long id = createFruit("Apple", 5);
+        bufferedPut(id, "Apple", 8);
+
+        mockMvc.perform(get("/fruits/stats"))
+                .andExpect(jsonPath("$.totalWeightInKilos").value(8));
+
+        bufferedPut(id, "Apple", 9);
+        jdbcTemplate.update("UPDATE fruits SET version = version + 1 WHERE id = ?", id);
+        double eventsBefore = publishedEvents();
+        writeBehind.flush();
+
+        assertEquals(8, row(id).get("WEIGHT_IN_KILOS"));
+        assertEquals(eventsBefore, publishedEvents());
+    }
+
+    // Runs the hook once, from inside the next UPDATE statement on fruits.
+    public static class BeforeUpdate implements Trigger {
+
+        static volatile Runnable hook;
+
+        @Override
+        public void fire(Connection connection, Object[] oldRow, Object[] newRow) {
+            Runnable run = hook;
+            hook = null;
+            if (run != null) {
+                run.run();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("write-behind - a stale flush must also drop an update coalesced while it ran")
+    void testStaleFlushDropsCoalescedUpdate() throws Exception {
+        Long id = createFruit("Apple", 5);
+        bufferedPut(id, "Apple", 6);
+        jdbcTemplate.update("UPDATE fruits SET version = version + 1 WHERE id = ?", id);
+        double staleBefore = meterRegistry.counter("fruit.write_behind.flushed", "result", "stale").count();
+
+        jdbcTemplate.execute("CREATE TRIGGER write_behind_hook BEFORE UPDATE ON fruits CALL \""
+                + BeforeUpdate.class.getName() + "\"");
+        try {
+            BeforeUpdate.hook = () -> writeBehind.put(id, new FruitRequestDTO("Apple", 7), fruitId -> null);
+            writeBehind.flush();
+        } finally {
+            BeforeUpdate.hook = null;
+            jdbcTemplate.execute("DROP TRIGGER write_behind_hook");
+        }
+
+        assertNull(writeBehind.get(id));
+        assertEquals(staleBefore + 2,
+                meterRegistry.counter("fruit.write_behind.flushed", "result", "stale").count());
+        assertEquals(0.0, meterRegistry.get("fruit.write_behind.pending").gauge().value());
+        assertEquals(5, row(id).get("WEIGHT_IN_KILOS"));
+    }
+
+    @Test
+    @DisplayName("write-behind PUT - must return 404 for a missing fruit without buffering it")
+    void testMissingFruit() throws Exception {
+        mockMvc.perform(put("/fruits/{id}", 999_999)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new FruitRequestDTO("Apple", 6))))
+                .andExpect(status().isNotFound());
+
+        assertEquals(0.0, meterRegistry.get("fruit.write_behind.pending").gauge().value());
+    }
+
+    @Test
+    @DisplayName("write-behind - conditional writes must conflict with a buffered update and DELETE must drop it")
+    void testConditionalWritesAndDelete() throws Exception {
+        Long id = createFruit("Apple", 5);
+        bufferedPut(id, "Apple", 6);
+
+        mockMvc.perform(put("/fruits/{id}", id)
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new FruitRequestDTO("Apple", 8))))
+                .andExpect(status().isPreconditionFailed());
+        bufferedPut(id, "Apple", 7);
+        // The ETag of a buffered update is valid: the update is flushed before the conditional write.
+        mockMvc.perform(put("/fruits/{id}", id)
+                        .header(HttpHeaders.IF_MATCH, "\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new FruitRequestDTO("Apple", 8))))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
+
+        mockMvc.perform(delete("/fruits/{id}", id))
+                .andExpect(status().isNoContent());
+        writeBehind.flush();
+
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM fruits WHERE id = ?", Integer.class, id));
+        mockMvc.perform(get("/fruits/{id}", id))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("write-behind - a batch update written directly must win over an older buffered update")
+    void testDirectWriteWins() throws Exception {
+        Long id = createFruit("Apple", 5);
+        bufferedPut(id, "Apple", 6);
+
+        mockMvc.perform(put("/fruits/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"id\":" + id + ",\"name\":\"Apple\",\"weightInKilos\":9}]"))
+                .andExpect(status().isOk());
+        writeBehind.flush();
+
+        assertEquals(9, row(id).get("WEIGHT_IN_KILOS"));
+    }
+
+    @Test
+    @DisplayName("write-behind - must flush without waiting for the interval once max-pending ids are buffered")
+    void testFlushOnSize() throws Exception {
+        Long[] ids = new Long[5];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = createFruit("Fruit " + i, 1);
+        }
+        for (Long id : ids) {
+            bufferedPut(id, "Fruit", 2);
+        }
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (jdbcTemplate.queryForObject("SELECT COUNT(*) FROM fruits WHERE weight_in_kilos = 2", Integer.class) < 5
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(5, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM fruits WHERE weight_in_kilos = 2", Integer.class));
+        assertTrue(meterRegistry.get("fruit.write_behind.flush").timer().count() > 0);
+    }
+
+    @Test
+    @DisplayName("write-behind - must flush buffered updates when the application shuts down, and write later ones directly")
+    void testFlushOnShutdown() throws Exception {
+        String url = "jdbc:h2:mem:writebehind-shutdown;DB_CLOSE_DELAY=-1";
+        Long id;
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(FruitApiH2Application.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + url,
+                        "--spring.jpa.hibernate.ddl-auto=create",
+                        "--fruit.write-behind.enabled=true",
+                        "--fruit.write-behind.flush-interval=1h",
+                        "--spring.main.banner-mode=off")) {
+            FruitService service = context.getBean(FruitService.class);
+            id = service.createFruit(new FruitRequestDTO("Apple", 5)).getId();
+            service.updateFruit(id, new FruitRequestDTO("Apple", 6));
+
+            // Closed before the rest of the context: a later PUT writes its own update.
+            context.getBeanFactory().destroyBean("fruitWriteBehindBuffer",
+                    context.getBean(FruitWriteBehindBuffer.class));
+            service.updateFruit(id, new FruitRequestDTO("Apple", 7));
+        }
+
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             ResultSet resultSet = connection.createStatement()
+                     .executeQuery("SELECT weight_in_kilos FROM fruits WHERE id = " + id)) {
+            assertTrue(resultSet.next());
+            assertEquals(7, resultSet.getInt(1));
+            connection.createStatement().execute("SHUTDOWN");
+        }
+    }
+}
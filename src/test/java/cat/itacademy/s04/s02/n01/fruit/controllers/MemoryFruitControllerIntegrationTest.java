@@ -0,0 +1,12 @@
+package cat.itacademy.s04.s02.n01.fruit.controllers;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * The whole of {@link FruitControllerIntegrationTest}, run against the in-memory store.
+ */
+@SpringBootTest(properties = "fruit.memory.data-dir=")
+@ActiveProfiles("memory")
+public class MemoryFruitControllerIntegrationTest extends FruitControllerIntegrationTest {
+}
@@ -0,0 +1,177 @@
+package cat.itacademy.s04.s02.n01.fruit.controllers;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitRequestDTO;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitResponseDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:reactive",
+        "spring.r2dbc.url=r2dbc:h2:mem:///reactive"
+})
+@AutoConfigureWebTestClient
+@ActiveProfiles("reactive")
+public class ReactiveFruitIntegrationTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void clearFruits() {
+        jdbcTemplate.update("DELETE FROM fruits");
+    }
+
+    private FruitResponseDTO createFruit(String name, int weightInKilos) {
+        return webTestClient.post().uri("/fruits")
+                .bodyValue(new FruitRequestDTO(name, weightInKilos))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(FruitResponseDTO.class)
+                .returnResult().getResponseBody();
+    }
+
+    @Test
+    @DisplayName("reactive POST + GET /fruits/{id} - must create the fruit and return it with an ETag")
+    void testCreateAndGetFruit() {
+        FruitResponseDTO created = createFruit("Apple", 5);
+        assertNotNull(created.getId());
+
+        webTestClient.get().uri("/fruits/{id}", created.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"0\"")
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("Apple")
+                .jsonPath("$.weightInKilos").isEqualTo(5);
+
+        webTestClient.get().uri("/fruits/{id}", created.getId())
+                .header(HttpHeaders.IF_NONE_MATCH, "\"0\"")
+                .exchange()
+                .expectStatus().isNotModified();
+    }
+
+    @Test
+    @DisplayName("reactive errors - must use the GlobalExceptionHandler body for 400, 404 and 412")
+    void testErrorFormat() {
+        webTestClient.post().uri("/fruits")
+                .bodyValue(new FruitRequestDTO("", 5))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(400)
+                .jsonPath("$.message").isEqualTo("The name cannot be empty.")
+                .jsonPath("$.timestamp").exists();
+
+        webTestClient.get().uri("/fruits?limit=0")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(400);
+
+        webTestClient.get().uri("/fruits/999999")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(404)
+                .jsonPath("$.message").isEqualTo("Fruit not found with id: 999999");
+
+        FruitResponseDTO fruit = createFruit("Apple", 5);
+        webTestClient.put().uri("/fruits/{id}", fruit.getId())
+                .header(HttpHeaders.IF_MATCH, "\"7\"")
+                .bodyValue(new FruitRequestDTO("Pear", 2))
+                .exchange()
+                .expectStatus().isEqualTo(412)
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(412);
+    }
+
+    @Test
+    @DisplayName("reactive PUT + DELETE /fruits/{id} - must honour If-Match, return the new ETag and 404 afterwards")
+    void testUpdateAndDelete() {
+        FruitResponseDTO fruit = createFruit("Apple", 5);
+
+        webTestClient.put().uri("/fruits/{id}", fruit.getId())
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .bodyValue(new FruitRequestDTO("Pear", 2))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"1\"")
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("Pear");
+        webTestClient.put().uri("/fruits/{id}", fruit.getId())
+                .bodyValue(new FruitRequestDTO("Pear", 3))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"2\"");
+        webTestClient.put().uri("/fruits/999999")
+                .bodyValue(new FruitRequestDTO("Pear", 3))
+                .exchange()
+                .expectStatus().isNotFound();
+
+        webTestClient.delete().uri("/fruits/{id}", fruit.getId())
+                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                .exchange()
+                .expectStatus().isNoContent();
+
+        webTestClient.delete().uri("/fruits/{id}", fruit.getId())
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    @DisplayName("reactive GET /fruits - must page with X-Next-Cursor and apply the filters")
+    void testKeysetPagesAndFilters() {
+        List<Long> ids = List.of(
+                createFruit("Apple", 5).getId(),
+                createFruit("apricot", 3).getId(),
+                createFruit("Banana", 7).getId());
+
+        List<FruitResponseDTO> first = webTestClient.get().uri("/fruits?limit=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(FruitController.NEXT_CURSOR_HEADER, ids.get(1).toString())
+                .expectBodyList(FruitResponseDTO.class)
+                .returnResult().getResponseBody();
+        assertEquals(ids.subList(0, 2), first.stream().map(FruitResponseDTO::getId).toList());
+
+        webTestClient.get().uri("/fruits?limit=2&after={after}", ids.get(1))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist(FruitController.NEXT_CURSOR_HEADER)
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].name").isEqualTo("Banana");
+
+        webTestClient.get().uri("/fruits?namePrefix=AP&maxWeight=4")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].name").isEqualTo("apricot");
+
+        webTestClient.get().uri("/fruits/stream")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().value(HttpHeaders.CONTENT_TYPE, startsWith(MediaType.APPLICATION_NDJSON_VALUE))
+                .expectBodyList(FruitResponseDTO.class).hasSize(3);
+    }
+}
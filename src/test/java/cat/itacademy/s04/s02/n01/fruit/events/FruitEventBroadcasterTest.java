@@ -0,0 +1,249 @@
+package cat.itacademy.s04.s02.n01.fruit.events;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitResponseDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FruitEventBroadcasterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<FruitEventBroadcaster> broadcasters = new ArrayList<>();
+
+    @AfterEach
+    void close() {
+        broadcasters.forEach(FruitEventBroadcaster::close);
+    }
+
+    private FruitEventBroadcaster broadcaster(int history, int maxPending) {
+        FruitEventBroadcaster broadcaster = new FruitEventBroadcaster(new ObjectMapper(), meterRegistry,
+                history, maxPending, Duration.ofMinutes(1));
+        broadcaster.start();
+        broadcasters.add(broadcaster);
+        return broadcaster;
+    }
+
+    private static FruitResponseDTO fruit(long id, int weightInKilos) {
+        return new FruitResponseDTO(id, "Fruit " + id, weightInKilos);
+    }
+
+    /**
+     * Records what it is sent; with a gate, the first send blocks until the gate opens, like a client
+     * that stops reading.
+     */
+    private static final class RecordingSink implements FruitEventBroadcaster.Sink {
+
+        final BlockingQueue<FruitEvent> events = new LinkedBlockingQueue<>();
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch gate;
+        volatile long receivedNanos;
+
+        RecordingSink(CountDownLatch gate) {
+            this.gate = gate;
+        }
+
+        @Override
+        public void send(FruitEvent event) throws IOException {
+            if (gate != null && gate.getCount() > 0) {
+                blocked.countDown();
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+            }
+            receivedNanos = System.nanoTime();
+            events.add(event);
+        }
+
+        @Override
+        public void heartbeat() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        FruitEvent next() throws InterruptedException {
+            FruitEvent event = events.poll(5, TimeUnit.SECONDS);
+            assertNotNull(event, "no event within 5s");
+            return event;
+        }
+    }
+
+    @Test
+    @DisplayName("publish - must send every change to every subscriber in order")
+    void testFanOut() throws Exception {
+        FruitEventBroadcaster broadcaster = broadcaster(100, 100);
+        RecordingSink first = new RecordingSink(null);
+        RecordingSink second = new RecordingSink(null);
+        broadcaster.subscribe(first, null);
+        broadcaster.subscribe(second, null);
+
+        broadcaster.created(fruit(1, 5));
+        broadcaster.updated(fruit(2, 6));
+        broadcaster.deleted(3L);
+
+        for (RecordingSink sink : List.of(first, second)) {
+            FruitEvent created = sink.next();
+            FruitEvent updated = sink.next();
+            FruitEvent deleted = sink.next();
+            assertEquals(FruitEvent.Type.CREATED, created.type());
+            assertEquals("{\"id\":1,\"name\":\"Fruit 1\",\"weightInKilos\":5}", created.data());
+            assertEquals(FruitEvent.Type.UPDATED, updated.type());
+            assertEquals(created.id() + 1, updated.id());
+            assertEquals(FruitEvent.Type.DELETED, deleted.type());
+            assertEquals("{\"id\":3}", deleted.data());
+        }
+    }
+
+    @Test
+    @DisplayName("slow subscriber - must keep only the latest change per fruit, still in event-id order")
+    void testCoalescing() throws Exception {
+        FruitEventBroadcaster broadcaster = broadcaster(100, 100);
+        CountDownLatch gate = new CountDownLatch(1);
+        RecordingSink slow = new RecordingSink(gate);
+        broadcaster.subscribe(slow, null);
+
+        broadcaster.created(fruit(1, 1));
+        assertTrue(slow.blocked.await(5, TimeUnit.SECONDS));
+        broadcaster.updated(fruit(2, 1));
+        broadcaster.updated(fruit(3, 1));
+        broadcaster.updated(fruit(2, 2));
+        awaitCount("fruit.events.coalesced", 1);
+        gate.countDown();
+
+        assertEquals(1L, slow.next().fruitId());
+        FruitEvent third = slow.next();
+        FruitEvent second = slow.next();
+        assertEquals(3L, third.fruitId());
+        assertEquals(2L, second.fruitId());
+        assertTrue(second.data().contains("\"weightInKilos\":2"));
+        assertTrue(third.id() < second.id());
+        assertEquals(1.0, meterRegistry.get("fruit.events.coalesced").counter().count());
+    }
+
+    @Test
+    @DisplayName("slow subscriber - must get a reset instead of more than max-pending buffered fruits")
+    void testOverflowReset() throws Exception {
+        FruitEventBroadcaster broadcaster = broadcaster(100, 2);
+        CountDownLatch gate = new CountDownLatch(1);
+        RecordingSink slow = new RecordingSink(gate);
+        broadcaster.subscribe(slow, null);
+
+        broadcaster.created(fruit(1, 1));
+        assertTrue(slow.blocked.await(5, TimeUnit.SECONDS));
+        broadcaster.created(fruit(2, 1));
+        broadcaster.created(fruit(3, 1));
+        broadcaster.created(fruit(4, 1));
+        broadcaster.created(fruit(5, 1));
+        awaitCount("fruit.events.resets", 1);
+        gate.countDown();
+
+        FruitEvent first = slow.next();
+        FruitEvent reset = slow.next();
+        FruitEvent after = slow.next();
+        assertEquals(FruitEvent.Type.RESET, reset.type());
+        assertEquals(first.id() + 3, reset.id());
+        assertEquals(5L, after.fruitId());
+        assertEquals(1.0, meterRegistry.get("fruit.events.resets").tag("reason", "overflow").counter().count());
+    }
+
+    @Test
+    @DisplayName("Last-Event-ID - must replay the missed events, or reset when they are no longer kept")
+    void testResume() throws Exception {
+        FruitEventBroadcaster broadcaster = broadcaster(3, 100);
+        RecordingSink live = new RecordingSink(null);
+        broadcaster.subscribe(live, null);
+        broadcaster.created(fruit(1, 1));
+        broadcaster.created(fruit(2, 1));
+        broadcaster.created(fruit(3, 1));
+        long first = live.next().id();
+
+        RecordingSink resumed = new RecordingSink(null);
+        broadcaster.subscribe(resumed, first);
+        assertEquals(2L, resumed.next().fruitId());
+        assertEquals(3L, resumed.next().fruitId());
+        broadcaster.created(fruit(4, 1));
+        assertEquals(4L, resumed.next().fruitId());
+
+        broadcaster.created(fruit(5, 1));
+        RecordingSink expired = new RecordingSink(null);
+        broadcaster.subscribe(expired, first);
+        assertEquals(FruitEvent.Type.RESET, expired.next().type());
+        RecordingSink beforeRestart = new RecordingSink(null);
+        broadcaster.subscribe(beforeRestart, 42L);
+        assertEquals(FruitEvent.Type.RESET, beforeRestart.next().type());
+    }
+
+    @Test
+    @DisplayName("5,000 subscribers - must deliver every change to all of them (prints latency and heap)")
+    void testFiveThousandSubscribers() throws Exception {
+        int subscribers = 5_000;
+        int events = 100;
+        FruitEventBroadcaster broadcaster = broadcaster(10_000, 1_000);
+        long heapBefore = usedHeap();
+        RecordingSink[] sinks = new RecordingSink[subscribers];
+        for (int i = 0; i < subscribers; i++) {
+            sinks[i] = new RecordingSink(null);
+            broadcaster.subscribe(sinks[i], null);
+        }
+        long heapAfter = usedHeap();
+
+        long lastPublished = 0;
+        for (int i = 1; i <= events; i++) {
+            broadcaster.updated(fruit(i, i));
+            lastPublished = System.nanoTime();
+            Thread.sleep(2);
+        }
+
+        long[] lastEventLatency = new long[subscribers];
+        for (int i = 0; i < subscribers; i++) {
+            FruitEvent last;
+            do {
+                last = sinks[i].next();
+            } while (last.fruitId() != events);
+            lastEventLatency[i] = sinks[i].receivedNanos - lastPublished;
+        }
+        Arrays.sort(lastEventLatency);
+        double deliveredMillis = meterRegistry.get("fruit.events.delivery").timer().mean(TimeUnit.MILLISECONDS);
+        System.out.printf("5000 subscribers: %d B heap per subscriber, mean delivery %.2f ms, "
+                        + "last event p50 %.2f ms, p99 %.2f ms%n",
+                (heapAfter - heapBefore) / subscribers, deliveredMillis,
+                lastEventLatency[subscribers / 2] / 1e6, lastEventLatency[subscribers * 99 / 100] / 1e6);
+
+        assertEquals((double) subscribers, meterRegistry.get("fruit.events.subscribers").gauge().value());
+        assertTrue(lastEventLatency[subscribers * 99 / 100] < TimeUnit.SECONDS.toNanos(5));
+    }
+
+    // Events reach the subscribers on the dispatcher thread, so wait for it before opening a gate.
+    private void awaitCount(String counter, double expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get(counter).counters().stream().mapToDouble(c -> c.count()).sum() < expected) {
+            assertTrue(System.nanoTime() < deadline, counter + " never reached " + expected);
+            Thread.sleep(1);
+        }
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        Thread.sleep(100);
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,193 @@
+package cat.itacademy.s04.s02.n01.fruit.load;
+
+import cat.itacademy.s04.s02.n01.fruit.FruitApiH2Application;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One client floods {@code GET /fruits} from N connections (all with {@code X-Client-Id: flood}, no
+ * think time) while well-behaved clients read single fruits a few times per second, each with its
+ * own id, and a prober calls {@code /health}. Runs once with admission control off and once with it
+ * on, and prints p50/p99 for the well-behaved clients and the prober, plus what the flood got back.
+ * The flood ignores {@code Retry-After} but pauses 10 ms after a rejection, so that on a small machine
+ * the load generator in this JVM does not take the CPU away from the server it is measuring.
+ *
+ * <pre>
+ * ./mvnw -Pload test-compile exec:java -Dload.main=cat.itacademy.s04.s02.n01.fruit.load.AdmissionHarness \
+ *     -Dexec.args="--flood 500 --clients 20 --duration 20 --property fruit.admission.rate=20"
+ * </pre>
+ *
+ * Any {@code --property key=value} is passed to the application.
+ */
+public final class AdmissionHarness {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+
+    private AdmissionHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int flood = 500;
+        int clients = 20;
+        int duration = 20;
+        int seed = 1_000;
+        List<String> properties = new ArrayList<>();
+        for (int i = 0; i < args.length; i += 2) {
+            switch (args[i]) {
+                case "--flood" -> flood = Integer.parseInt(args[i + 1]);
+                case "--clients" -> clients = Integer.parseInt(args[i + 1]);
+                case "--duration" -> duration = Integer.parseInt(args[i + 1]);
+                case "--seed" -> seed = Integer.parseInt(args[i + 1]);
+                case "--property" -> properties.add("--" + args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        System.out.printf("%-10s %-12s %10s %10s %10s %10s %10s%n",
+                "admission", "client", "requests", "p50 ms", "p99 ms", "max ms", "errors");
+        for (boolean enabled : new boolean[]{false, true}) {
+            List<String> arguments = new ArrayList<>(List.of("--server.port=0",
+                    "--spring.datasource.url=jdbc:h2:mem:admission-" + enabled,
+                    "--server.tomcat.max-connections=20000",
+                    "--spring.main.banner-mode=off",
+                    "--logging.level.root=WARN",
+                    // Every client connects from loopback, standing in for a proxy that sets X-Client-Id.
+                    "--fruit.admission.trusted-proxies=127.0.0.1,0:0:0:0:0:0:0:1"));
+            arguments.addAll(properties);
+            arguments.add("--fruit.admission.enabled=" + enabled);
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(FruitApiH2Application.class)
+                    .run(arguments.toArray(String[]::new));
+                 HttpClient client = HttpClient.newBuilder()
+                         .version(HttpClient.Version.HTTP_1_1)
+                         .executor(Executors.newVirtualThreadPerTaskExecutor())
+                         .connectTimeout(REQUEST_TIMEOUT)
+                         .build()) {
+                URI base = URI.create("http://localhost:"
+                        + ((WebServerApplicationContext) context).getWebServer().getPort());
+                long[] ids = LoadHarness.seed(client, base, seed);
+                run(client, base, ids, enabled ? "on" : "off", flood, clients, duration);
+            }
+        }
+    }
+
+    private static void run(HttpClient client, URI base, long[] ids, String label,
+                            int flood, int clients, int duration) throws Exception {
+        long end = System.nanoTime() + Duration.ofSeconds(duration).toNanos();
+        Recorder polite = new Recorder();
+        Recorder health = new Recorder();
+        ConcurrentHashMap<Integer, LongAdder> floodStatuses = new ConcurrentHashMap<>();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < flood; i++) {
+                executor.submit(() -> {
+                    HttpRequest request = HttpRequest.newBuilder(base.resolve("/fruits?limit=100"))
+                            .header("X-Client-Id", "flood")
+                            .timeout(REQUEST_TIMEOUT)
+                            .build();
+                    while (System.nanoTime() < end) {
+                        int status;
+                        try {
+                            status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                        } catch (Exception e) {
+                            status = 0;
+                        }
+                        floodStatuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+                        if (status != 200) {
+                            Thread.sleep(10);
+                        }
+                    }
+                    return null;
+                });
+            }
+            for (int i = 0; i < clients; i++) {
+                String clientId = "client-" + i;
+                executor.submit(() -> {
+                    while (System.nanoTime() < end) {
+                        long id = ids[ThreadLocalRandom.current().nextInt(ids.length)];
+                        polite.call(client, HttpRequest.newBuilder(base.resolve("/fruits/" + id))
+                                .header("X-Client-Id", clientId)
+                                .timeout(REQUEST_TIMEOUT)
+                                .build());
+                        Thread.sleep(200);
+                    }
+                    return null;
+                });
+            }
+            executor.submit(() -> {
+                while (System.nanoTime() < end) {
+                    health.call(client, HttpRequest.newBuilder(base.resolve("/health"))
+                            .timeout(REQUEST_TIMEOUT)
+                            .build());
+                    Thread.sleep(100);
+                }
+                return null;
+            });
+        }
+
+        polite.print(label, "well-behaved");
+        health.print(label, "health");
+        StringBuilder statuses = new StringBuilder();
+        floodStatuses.entrySet().stream().sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> statuses.append(' ').append(entry.getKey() == 0 ? "timeout/io" : entry.getKey())
+                        .append('=').append(entry.getValue().sum()));
+        System.out.printf("%-10s %-12s%s%n", label, "flood", statuses);
+    }
+
+    /** Latencies of successful calls; anything else (non-2xx, timeout) is an error. */
+    private static final class Recorder {
+
+        private final List<Long> latencies = new ArrayList<>();
+        private final AtomicLong errors = new AtomicLong();
+
+        void call(HttpClient client, HttpRequest request) {
+            long started = System.nanoTime();
+            try {
+                int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                if (status / 100 != 2) {
+                    errors.incrementAndGet();
+                    return;
+                }
+            } catch (Exception e) {
+                errors.incrementAndGet();
+                return;
+            }
+            long elapsed = System.nanoTime() - started;
+            synchronized (latencies) {
+                latencies.add(elapsed);
+            }
+        }
+
+        void print(String label, String name) {
+            long[] sorted;
+            synchronized (latencies) {
+                sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+            }
+            System.out.printf("%-10s %-12s %10d %10.1f %10.1f %10.1f %10d%n", label, name, sorted.length,
+                    percentile(sorted, 50), percentile(sorted, 99), percentile(sorted, 100), errors.get());
+        }
+
+        private static double percentile(long[] sorted, int percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            return sorted[Math.min(sorted.length - 1, sorted.length * percentile / 100)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package cat.itacademy.s04.s02.n01.fruit.load;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Measures the time from launching a new JVM to its first successful {@code GET /health}, for the jar
+ * of a default build ({@code --before}) and of a {@code -Pfast-startup} build ({@code --after}). The
+ * after jar is prepared like the Docker image: extracted, then a CDS archive is recorded by a training
+ * run that exits once the context has refreshed. Every run starts the {@code prod} profile on an
+ * empty data directory.
+ *
+ * <pre>
+ * ./mvnw -q package -DskipTests &amp;&amp; cp target/fruit-api-h2-0.0.1-SNAPSHOT.jar target/before.jar
+ * ./mvnw -q -Pfast-startup package -DskipTests
+ * ./mvnw -Pload test-compile exec:java -Dload.main=cat.itacademy.s04.s02.n01.fruit.load.ColdStartHarness \
+ *     -Dexec.args="--before target/before.jar --after target/fruit-api-h2-0.0.1-SNAPSHOT.jar --runs 5"
+ * </pre>
+ */
+public final class ColdStartHarness {
+
+    private static final Duration TIMEOUT = Duration.ofMinutes(2);
+
+    private ColdStartHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path before = null;
+        Path after = null;
+        int runs = 5;
+        for (int i = 0; i < args.length; i += 2) {
+            switch (args[i]) {
+                case "--before" -> before = Path.of(args[i + 1]);
+                case "--after" -> after = Path.of(args[i + 1]);
+                case "--runs" -> runs = Integer.parseInt(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (before == null || after == null) {
+            throw new IllegalArgumentException("Both --before and --after are required");
+        }
+
+        String java = ProcessHandle.current().info().command().orElse("java");
+        Path work = Files.createTempDirectory("fruit-cold-start");
+        try (HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build()) {
+            Path extracted = work.resolve("after");
+            Files.copy(after, work.resolve("app.jar"));
+            exec(List.of(java, "-Djarmode=tools", "-jar", work.resolve("app.jar").toString(),
+                    "extract", "--destination", extracted.toString()));
+            String app = extracted.resolve("app.jar").toString();
+            Path archive = extracted.resolve("app.jsa");
+            List<String> training = new ArrayList<>(List.of(java, "-XX:ArchiveClassesAtExit=" + archive,
+                    "-Dspring.aot.enabled=true", "-Dspring.context.exit=onRefresh", "-jar", app));
+            training.addAll(appArgs(work.resolve("training"), 0));
+            exec(training);
+
+            System.out.printf("%-32s %10s %10s %10s%n", "scenario", "min ms", "median ms", "max ms");
+            report(client, work, runs, "before: java -jar", List.of(java, "-jar", before.toString()));
+            report(client, work, runs, "after: extracted", List.of(java, "-jar", app));
+            report(client, work, runs, "after: extracted + AOT",
+                    List.of(java, "-Dspring.aot.enabled=true", "-jar", app));
+            report(client, work, runs, "after: extracted + AOT + CDS",
+                    List.of(java, "-XX:SharedArchiveFile=" + archive, "-Dspring.aot.enabled=true", "-jar", app));
+            report(client, work, runs, "after: ... + lazy init",
+                    List.of(java, "-XX:SharedArchiveFile=" + archive, "-Dspring.aot.enabled=true",
+                            "-Dspring.main.lazy-initialization=true", "-jar", app));
+        } finally {
+            delete(work);
+        }
+    }
+
+    private static List<String> appArgs(Path dataDir, int port) {
+        return List.of("--spring.profiles.active=prod", "--fruit.data-dir=" + dataDir, "--server.port=" + port,
+                "--spring.main.banner-mode=off", "--logging.level.root=WARN");
+    }
+
+    private static void report(HttpClient client, Path work, int runs, String scenario, List<String> command)
+            throws Exception {
+        long[] millis = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            millis[i] = timeToHealthy(client, work.resolve("data-" + System.nanoTime()), command);
+        }
+        Arrays.sort(millis);
+        System.out.printf("%-32s %10d %10d %10d%n", scenario, millis[0], millis[runs / 2], millis[runs - 1]);
+    }
+
+    private static long timeToHealthy(HttpClient client, Path dataDir, List<String> command) throws Exception {
+        int port = freePort();
+        List<String> full = new ArrayList<>(command);
+        full.addAll(appArgs(dataDir, port));
+        URI health = URI.create("http://localhost:" + port + "/health");
+
+        long started = System.nanoTime();
+        Process process = new ProcessBuilder(full)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            while (System.nanoTime() - started < TIMEOUT.toNanos()) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Exited with " + process.exitValue() + ": " + full);
+                }
+                try {
+                    HttpResponse<Void> response = client.send(HttpRequest.newBuilder(health).build(),
+                            HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() == 200) {
+                        return (System.nanoTime() - started) / 1_000_000;
+                    }
+                } catch (IOException notListeningYet) {
+                    // retry below
+                }
+                Thread.sleep(10);
+            }
+            throw new IllegalStateException("Not healthy after " + TIMEOUT + ": " + full);
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private static void exec(List<String> command) throws Exception {
+        Process process = new ProcessBuilder(command).inheritIO().start();
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("Failed: " + command);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package cat.itacademy.s04.s02.n01.fruit.load;
+
+import cat.itacademy.s04.s02.n01.fruit.FruitApiH2Application;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryType;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Connects N clients to {@code GET /fruits/events}, then changes one fruit M times through
+ * {@code PUT /fruits/{id}} and prints how long each change took to reach the clients (p50/p99/max,
+ * from sending the PUT to reading the event) and the heap held per connection. Each PUT carries its
+ * sequence number as the weight, so a client that was sent a coalesced event only counts the latest.
+ * Clients and server share the JVM, so the heap figure includes both ends of every connection.
+ *
+ * <pre>
+ * ./mvnw -Pload test-compile exec:java -Dload.main=cat.itacademy.s04.s02.n01.fruit.load.EventsHarness \
+ *     -Dexec.args="--clients 5000 --events 100 --interval 20"
+ * </pre>
+ */
+public final class EventsHarness {
+
+    private static final Pattern WEIGHT_PATTERN = Pattern.compile("\"weightInKilos\":(\\d+)");
+
+    private EventsHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int clients = 5_000;
+        int events = 100;
+        long intervalMillis = 20;
+        for (int i = 0; i < args.length; i += 2) {
+            switch (args[i]) {
+                case "--clients" -> clients = Integer.parseInt(args[i + 1]);
+                case "--events" -> events = Integer.parseInt(args[i + 1]);
+                case "--interval" -> intervalMillis = Long.parseLong(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(FruitApiH2Application.class)
+                .run("--server.port=0",
+                        "--server.tomcat.max-connections=" + (clients + 100),
+                        "--fruit.admission.enabled=false",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN");
+             HttpClient client = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .executor(Executors.newVirtualThreadPerTaskExecutor())
+                     .connectTimeout(Duration.ofSeconds(30))
+                     .build()) {
+            URI base = URI.create("http://localhost:"
+                    + ((WebServerApplicationContext) context).getWebServer().getPort());
+            MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+
+            String created = client.send(json(base.resolve("/fruits"), "POST", 1), HttpResponse.BodyHandlers.ofString())
+                    .body();
+            URI fruit = base.resolve("/fruits/" + created.replaceAll(".*\"id\":(\\d+).*", "$1"));
+
+            long heapBefore = heapAfterGc();
+            long[] sentNanos = new long[events + 1];
+            long[] latencies = new long[clients * events];
+            AtomicInteger received = new AtomicInteger();
+            CountDownLatch done = new CountDownLatch(clients);
+            HttpRequest subscribe = HttpRequest.newBuilder(base.resolve("/fruits/events"))
+                    .header("Accept", "text/event-stream")
+                    .build();
+            for (int i = 0; i < clients; i++) {
+                client.sendAsync(subscribe, HttpResponse.BodyHandlers.fromLineSubscriber(
+                        new EventReader(events, sentNanos, latencies, received, done)));
+            }
+            double subscribed = 0;
+            long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(2);
+            while (subscribed < clients && System.nanoTime() < deadline) {
+                Thread.sleep(100);
+                subscribed = meterRegistry.get("fruit.events.subscribers").gauge().value();
+            }
+            long heapAfter = heapAfterGc();
+
+            for (int i = 1; i <= events; i++) {
+                sentNanos[i] = System.nanoTime();
+                client.send(json(fruit, "PUT", i), HttpResponse.BodyHandlers.discarding());
+                Thread.sleep(intervalMillis);
+            }
+            boolean all = done.await(2, TimeUnit.MINUTES);
+
+            long[] measured = Arrays.copyOf(latencies, received.get());
+            Arrays.sort(measured);
+            System.out.printf("%8s %8s %10s %10s %10s %10s %10s %14s%n", "clients", "events", "delivered",
+                    "coalesced", "p50 ms", "p99 ms", "max ms", "heap/conn KB");
+            System.out.printf("%8d %8d %10d %10.0f %10.2f %10.2f %10.2f %14.1f%n",
+                    (int) subscribed, events, measured.length,
+                    meterRegistry.get("fruit.events.coalesced").counter().count(),
+                    percentile(measured, 50), percentile(measured, 99), percentile(measured, 100),
+                    (heapAfter - heapBefore) / 1024.0 / clients);
+            if (!all) {
+                System.out.println(done.getCount() + " clients never saw the last change");
+            }
+        }
+    }
+
+    private static HttpRequest json(URI uri, String method, int weight) {
+        return HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(
+                        "{\"name\":\"Stock\",\"weightInKilos\":" + weight + "}"))
+                .build();
+    }
+
+    private static double percentile(long[] sorted, int percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, sorted.length * percentile / 100)] / 1e6;
+    }
+
+    // Heap still in use right after the latest collection, summed over the heap pools.
+    private static long heapAfterGc() throws InterruptedException {
+        System.gc();
+        Thread.sleep(500);
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP && pool.getCollectionUsage() != null)
+                .mapToLong(pool -> pool.getCollectionUsage().getUsed())
+                .sum();
+    }
+
+    /** Records the latency of every {@code updated} event it reads, and counts down once it sees the last one. */
+    private record EventReader(int events, long[] sentNanos, long[] latencies, AtomicInteger received,
+                               CountDownLatch done) implements Flow.Subscriber<String> {
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (!line.startsWith("data:")) {
+                return;
+            }
+            Matcher matcher = WEIGHT_PATTERN.matcher(line);
+            if (!matcher.find()) {
+                return;
+            }
+            int sequence = Integer.parseInt(matcher.group(1));
+            latencies[received.getAndIncrement()] = System.nanoTime() - sentNanos[sequence];
+            if (sequence == events) {
+                done.countDown();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+}
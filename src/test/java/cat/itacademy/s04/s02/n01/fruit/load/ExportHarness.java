@@ -0,0 +1,140 @@
+package cat.itacademy.s04.s02.n01.fruit.load;
+
+import cat.itacademy.s04.s02.n01.fruit.FruitApiH2Application;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryType;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Seeds N rows straight into the {@code prod} H2 file and downloads them through
+ * {@code GET /fruits/export} (NDJSON and CSV, plain and gzip) and {@code GET /fruits/stream}, which
+ * reads through the same cursor. Prints time to first byte, rows/s, bytes on the wire and the peak
+ * heap in use after GC while each download runs.
+ *
+ * <pre>
+ * ./mvnw -Pload test-compile exec:java -Dload.main=cat.itacademy.s04.s02.n01.fruit.load.ExportHarness \
+ *     -Dexec.args="--rows 10000000"
+ * </pre>
+ */
+public final class ExportHarness {
+
+    private static final int SEED_CHUNK = 1_000_000;
+
+    private ExportHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rows = 10_000_000;
+        for (int i = 0; i < args.length; i += 2) {
+            switch (args[i]) {
+                case "--rows" -> rows = Integer.parseInt(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        Path dataDir = Files.createTempDirectory("fruit-export");
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(FruitApiH2Application.class)
+                .profiles("prod")
+                .run("--server.port=0",
+                        "--fruit.data-dir=" + dataDir,
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN");
+             HttpClient client = HttpClient.newHttpClient()) {
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            for (int from = 1; from <= rows; from += SEED_CHUNK) {
+                jdbcTemplate.update("INSERT INTO fruits (id, name, weight_in_kilos, version) "
+                        + "SELECT x, 'Fruit ' || x, MOD(x, 100) + 1, 0 FROM SYSTEM_RANGE(?, ?)",
+                        from, Math.min(rows, from + SEED_CHUNK - 1));
+            }
+
+            URI base = URI.create("http://localhost:"
+                    + ((WebServerApplicationContext) context).getWebServer().getPort());
+            // JIT warm-up; not reported.
+            client.send(HttpRequest.newBuilder(base.resolve("/fruits/export")).build(),
+                    HttpResponse.BodyHandlers.discarding());
+
+            System.out.printf("%-24s %12s %10s %10s %12s %10s %14s%n",
+                    "download", "rows", "ttfb ms", "seconds", "rows/s", "MB", "peak heap MB");
+            download(client, base, "/fruits/export", null, rows);
+            download(client, base, "/fruits/export", "gzip", rows);
+            download(client, base, "/fruits/export?format=csv", null, rows);
+            download(client, base, "/fruits/export?format=csv", "gzip", rows);
+            download(client, base, "/fruits/stream", null, rows);
+        } finally {
+            try (Stream<Path> files = Files.walk(dataDir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+    }
+
+    private static void download(HttpClient client, URI base, String path, String encoding, int rows)
+            throws Exception {
+        System.gc();
+        AtomicLong peakHeap = new AtomicLong();
+        Thread sampler = Thread.ofPlatform().daemon().start(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                peakHeap.accumulateAndGet(heapAfterGc(), Math::max);
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(base.resolve(path))
+                .header("Accept", "application/x-ndjson");
+        if (encoding != null) {
+            request.header("Accept-Encoding", encoding);
+        }
+
+        long started = System.nanoTime();
+        long firstByte = 0;
+        long bytes = 0;
+        HttpResponse<InputStream> response = client.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream body = response.body()) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = body.read(buffer)) >= 0) {
+                if (firstByte == 0) {
+                    firstByte = System.nanoTime();
+                }
+                bytes += read;
+            }
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        sampler.interrupt();
+
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(path + " returned " + response.statusCode());
+        }
+        System.out.printf("%-24s %12d %10d %10.1f %12.0f %10d %14d%n",
+                path.replace("/fruits/", "") + (encoding == null ? "" : " (" + encoding + ")"),
+                rows, (firstByte - started) / 1_000_000, seconds, rows / seconds,
+                bytes / (1024 * 1024), peakHeap.get() / (1024 * 1024));
+    }
+
+    // Heap still in use right after the latest collection, summed over the heap pools.
+    private static long heapAfterGc() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP && pool.getCollectionUsage() != null)
+                .mapToLong(pool -> pool.getCollectionUsage().getUsed())
+                .sum();
+    }
+}
@@ -0,0 +1,150 @@
+package cat.itacademy.s04.s02.n01.fruit.load;
+
+import cat.itacademy.s04.s02.n01.fruit.FruitApiH2Application;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryType;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Streams a generated NDJSON or CSV file of N lines into {@code POST /fruits/import} and prints
+ * rows/s and the peak heap in use after GC. The body is produced on the fly, so the harness itself
+ * holds no more than one line. Uses the {@code prod} profile on a temporary directory, so the
+ * imported rows live on disk rather than in the heap being measured.
+ *
+ * <pre>
+ * ./mvnw -Pload test-compile exec:java -Dload.main=cat.itacademy.s04.s02.n01.fruit.load.ImportHarness \
+ *     -Dexec.args="--rows 10000000 --format ndjson"
+ * </pre>
+ */
+public final class ImportHarness {
+
+    private ImportHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rows = 10_000_000;
+        String format = "ndjson";
+        int chunkSize = 1_000;
+        for (int i = 0; i < args.length; i += 2) {
+            switch (args[i]) {
+                case "--rows" -> rows = Integer.parseInt(args[i + 1]);
+                case "--format" -> format = args[i + 1];
+                case "--chunk-size" -> chunkSize = Integer.parseInt(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        Path dataDir = Files.createTempDirectory("fruit-import");
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(FruitApiH2Application.class)
+                .profiles("prod")
+                .run("--server.port=0",
+                        "--fruit.data-dir=" + dataDir,
+                        "--fruit.import.chunk-size=" + chunkSize,
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN");
+             HttpClient client = HttpClient.newHttpClient()) {
+            URI base = URI.create("http://localhost:"
+                    + ((WebServerApplicationContext) context).getWebServer().getPort());
+            boolean csv = format.equals("csv");
+            int count = rows;
+
+            AtomicLong peakHeap = new AtomicLong();
+            Thread sampler = Thread.ofPlatform().daemon().start(() -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    peakHeap.accumulateAndGet(heapAfterGc(), Math::max);
+                    try {
+                        Thread.sleep(200);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            });
+
+            long started = System.nanoTime();
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(base.resolve("/fruits/import"))
+                            .header("Content-Type", csv ? "text/csv" : "application/x-ndjson")
+                            .POST(HttpRequest.BodyPublishers.ofInputStream(() -> new GeneratedBody(count, csv)))
+                            .build(),
+                    HttpResponse.BodyHandlers.ofString());
+            double seconds = (System.nanoTime() - started) / 1e9;
+            sampler.interrupt();
+
+            System.out.println(response.body());
+            System.out.printf("%-10s %12s %10s %12s %14s%n", "format", "rows", "seconds", "rows/s", "peak heap MB");
+            System.out.printf("%-10s %12d %10.1f %12.0f %14d%n",
+                    format, rows, seconds, rows / seconds, peakHeap.get() / (1024 * 1024));
+        } finally {
+            try (Stream<Path> files = Files.walk(dataDir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+    }
+
+    // Heap still in use right after the latest collection, summed over the heap pools.
+    private static long heapAfterGc() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP && pool.getCollectionUsage() != null)
+                .mapToLong(pool -> pool.getCollectionUsage().getUsed())
+                .sum();
+    }
+
+    private static final class GeneratedBody extends InputStream {
+
+        private final int rows;
+        private final boolean csv;
+        private int next;
+        private byte[] line = new byte[0];
+        private int position;
+
+        GeneratedBody(int rows, boolean csv) {
+            this.rows = rows;
+            this.csv = csv;
+            if (csv) {
+                line = "name,weightInKilos\n".getBytes(StandardCharsets.UTF_8);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (position == line.length) {
+                if (next == rows) {
+                    return -1;
+                }
+                String name = "Fruit " + next;
+                int weight = next % 100 + 1;
+                line = (csv ? name + "," + weight + "\n"
+                        : "{\"name\":\"" + name + "\",\"weightInKilos\":" + weight + "}\n")
+                        .getBytes(StandardCharsets.UTF_8);
+                position = 0;
+                next++;
+            }
+            int n = Math.min(length, line.length - position);
+            System.arraycopy(line, position, buffer, offset, n);
+            position += n;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package cat.itacademy.s04.s02.n01.fruit.load;
+
+import cat.itacademy.s04.s02.n01.fruit.FruitApiH2Application;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Closed-loop load generator for the fruit API running on the embedded H2 database.
+ * Starts the application once per execution mode, seeds it through {@code POST /fruits/batch}
+ * and drives {@code GET /fruits/{id}} (plus a share of {@code PUT /fruits/{id}}) from N
+ * concurrent clients, printing req/s and p50/p99 latency per mode and client count.
+ *
+ * <pre>
+ * ./mvnw -Pload test-compile exec:java \
+ *     -Dexec.args="--modes platform,virtual,reactive --clients 100,1000,10000 --duration 20"
+ * </pre>
+ *
+ * A mode is a profile name ({@code platform} is the default servlet stack), so {@code reactive}
+ * runs the same workload against WebFlux and R2DBC, and {@code memory} against the in-process store
+ * (without persistence).
+ *
+ * Every mode gets the same fixed Hikari pool ({@code --pool-size}, default 16 as in the
+ * {@code virtual} profile), so a difference between modes is not a difference in connections.
+ *
+ * Any {@code --property key=value} is passed to the application, so other profiles and
+ * settings can be compared the same way.
+ */
+public final class LoadHarness {
+
+    private static final int SEED_CHUNK = 1_000;
+    private static final Pattern ID_PATTERN = Pattern.compile("\"id\":(\\d+)");
+
+    private LoadHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+
+        System.out.printf("%-10s %8s %10s %10s %10s %10s %8s%n",
+                "mode", "clients", "requests", "req/s", "p50 ms", "p99 ms", "errors");
+
+        for (String mode : options.modes) {
+            try (ConfigurableApplicationContext context = start(mode, options)) {
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                URI base = URI.create("http://localhost:" + port);
+
+                try (HttpClient client = HttpClient.newBuilder()
+                        .executor(Executors.newVirtualThreadPerTaskExecutor())
+                        .connectTimeout(Duration.ofSeconds(10))
+                        .build()) {
+                    // The reactive and memory stacks have no batch endpoint, so they are seeded one POST at a time.
+                    long[] ids = mode.equals("reactive") || mode.equals("memory")
+                            ? seedOneByOne(client, base, options.seed)
+                            : seed(client, base, options.seed);
+
+                    for (int clients : options.clients) {
+                        run(client, base, ids, clients, options.warmup, options.writePercent);
+                        Result result = run(client, base, ids, clients, options.duration, options.writePercent);
+                        System.out.printf("%-10s %8d %10d %10.0f %10.2f %10.2f %8d%n",
+                                mode, clients, result.requests(), result.throughput(),
+                                result.percentile(50), result.percentile(99), result.errors());
+                    }
+                }
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext start(String mode, Options options) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("server.port", 0);
+        properties.put("spring.datasource.url", "jdbc:h2:mem:load-" + mode + ";DB_CLOSE_ON_EXIT=FALSE");
+        properties.put("spring.r2dbc.url", "r2dbc:h2:mem:///load-" + mode);
+        properties.put("fruit.memory.data-dir", "");
+        properties.put("spring.jpa.show-sql", false);
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("logging.level.root", "WARN");
+        properties.put("server.tomcat.max-connections", 20_000);
+        properties.put("spring.datasource.hikari.maximum-pool-size", options.poolSize);
+        properties.put("spring.datasource.hikari.minimum-idle", options.poolSize);
+        // Reads go to the database by default; the point is to load the blocking JDBC path.
+        properties.put("fruit.cache.max-size", 0);
+        // Every client comes from this JVM, i.e. one address: the rate limit would be measured instead.
+        properties.put("fruit.admission.enabled", false);
+        properties.putAll(options.properties);
+
+        System.setProperty("spring.devtools.restart.enabled", "false");
+
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(FruitApiH2Application.class);
+        if (!mode.equals("platform")) {
+            builder.profiles(mode);
+        }
+        // Passed as command-line arguments so they win over application.properties.
+        return builder.run(properties.entrySet().stream()
+                .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+                .toArray(String[]::new));
+    }
+
+    static long[] seed(HttpClient client, URI base, int count) throws Exception {
+        List<Long> ids = new ArrayList<>(count);
+        for (int offset = 0; offset < count; offset += SEED_CHUNK) {
+            StringJoiner body = new StringJoiner(",", "[", "]");
+            for (int i = offset; i < Math.min(count, offset + SEED_CHUNK); i++) {
+                body.add("{\"name\":\"Fruit " + i + "\",\"weightInKilos\":" + (i % 100 + 1) + "}");
+            }
+
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(base.resolve("/fruits/batch"))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                            .build(),
+                    HttpResponse.BodyHandlers.ofString());
+
+            Matcher matcher = ID_PATTERN.matcher(response.body());
+            while (matcher.find()) {
+                ids.add(Long.parseLong(matcher.group(1)));
+            }
+        }
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static long[] seedOneByOne(HttpClient client, URI base, int count) throws Exception {
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(base.resolve("/fruits"))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(
+                                    "{\"name\":\"Fruit " + i + "\",\"weightInKilos\":" + (i % 100 + 1) + "}"))
+                            .build(),
+                    HttpResponse.BodyHandlers.ofString());
+
+            Matcher matcher = ID_PATTERN.matcher(response.body());
+            if (!matcher.find()) {
+                throw new IllegalStateException("Seeding failed: " + response.body());
+            }
+            ids[i] = Long.parseLong(matcher.group(1));
+        }
+        return ids;
+    }
+
+    private static Result run(HttpClient client, URI base, long[] ids, int clients,
+                              Duration duration, int writePercent) throws InterruptedException {
+        long deadline = System.nanoTime() + duration.toNanos();
+        AtomicLong errors = new AtomicLong();
+        List<long[]> latencies = Collections.synchronizedList(new ArrayList<>());
+
+        long started = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                executor.submit(() -> {
+                    LongList samples = new LongList();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < deadline) {
+                        long id = ids[random.nextInt(ids.length)];
+                        HttpRequest request = random.nextInt(100) < writePercent
+                                ? HttpRequest.newBuilder(base.resolve("/fruits/" + id))
+                                .header("Content-Type", "application/json")
+                                .PUT(HttpRequest.BodyPublishers.ofString(
+                                        "{\"name\":\"Fruit " + id + "\",\"weightInKilos\":" + random.nextInt(1, 100) + "}"))
+                                .build()
+                                : HttpRequest.newBuilder(base.resolve("/fruits/" + id)).GET().build();
+
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() >= 400) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        samples.add(System.nanoTime() - start);
+                    }
+                    latencies.add(samples.toArray());
+                });
+            }
+        }
+        long elapsed = System.nanoTime() - started;
+
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        return new Result(all, elapsed, errors.get());
+    }
+
+    private record Result(long[] sortedLatencies, long elapsedNanos, long errors) {
+
+        long requests() {
+            return sortedLatencies.length;
+        }
+
+        double throughput() {
+            return sortedLatencies.length / (elapsedNanos / 1e9);
+        }
+
+        double percentile(int percentile) {
+            if (sortedLatencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100.0 * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(index, 0)] / 1e6;
+        }
+    }
+
+    private static final class LongList {
+
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    private static final class Options {
+
+        List<String> modes = List.of("platform", "virtual");
+        List<Integer> clients = List.of(100, 1_000, 10_000);
+        Duration duration = Duration.ofSeconds(20);
+        Duration warmup = Duration.ofSeconds(5);
+        int seed = 10_000;
+        int writePercent = 10;
+        int poolSize = 16;
+        Map<String, Object> properties = new LinkedHashMap<>();
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i < args.length; i += 2) {
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--modes" -> options.modes = List.of(value.split(","));
+                    case "--clients" -> options.clients = Arrays.stream(value.split(","))
+                            .map(Integer::valueOf).toList();
+                    case "--duration" -> options.duration = Duration.ofSeconds(Long.parseLong(value));
+                    case "--warmup" -> options.warmup = Duration.ofSeconds(Long.parseLong(value));
+                    case "--seed" -> options.seed = Integer.parseInt(value);
+                    case "--write-percent" -> options.writePercent = Integer.parseInt(value);
+                    case "--pool-size" -> options.poolSize = Integer.parseInt(value);
+                    case "--property" -> {
+                        String[] pair = value.split("=", 2);
+                        options.properties.put(pair[0], pair[1]);
+                    }
+                    default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+            return options;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package cat.itacademy.s04.s02.n01.fruit.load;
+
+import cat.itacademy.s04.s02.n01.fruit.FruitApiH2Application;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Measures how long it takes until the API serves a stored fruit, comparing a warm restart of the
+ * {@code prod} profile (H2 file already on disk) with starting empty and re-ingesting every fruit
+ * through {@code POST /fruits/batch}.
+ *
+ * <pre>
+ * ./mvnw -Pload test-compile exec:java -Dload.main=cat.itacademy.s04.s02.n01.fruit.load.StartupHarness \
+ *     -Dexec.args="--rows 1000000 --restarts 3"
+ * </pre>
+ */
+public final class StartupHarness {
+
+    private StartupHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rows = 1_000_000;
+        int restarts = 3;
+        for (int i = 0; i < args.length; i += 2) {
+            switch (args[i]) {
+                case "--rows" -> rows = Integer.parseInt(args[i + 1]);
+                case "--restarts" -> restarts = Integer.parseInt(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        Path dataDir = Files.createTempDirectory("fruit-startup");
+
+        try {
+            System.out.printf("%-28s %12s%n", "scenario", "ready ms");
+            System.out.printf("%-28s %12d%n", "re-ingest (mem, default)", ingest(rows, null));
+            System.out.printf("%-28s %12d%n", "re-ingest (file, prod)", ingest(rows, dataDir));
+            System.out.printf("%-28s %12s%n", "database size", sizeOf(dataDir) / (1024 * 1024) + " MB");
+            for (int i = 1; i <= restarts; i++) {
+                System.out.printf("%-28s %12d%n", "warm restart #" + i + " (file, prod)", restart(dataDir));
+            }
+        } finally {
+            delete(dataDir);
+        }
+    }
+
+    private static long ingest(int rows, Path dataDir) throws Exception {
+        long started = System.nanoTime();
+        try (ConfigurableApplicationContext context = start(dataDir);
+             HttpClient client = HttpClient.newHttpClient()) {
+            URI base = baseUri(context);
+            long[] ids = LoadHarness.seed(client, base, rows);
+            awaitFruit(client, base, ids[ids.length - 1]);
+            return (System.nanoTime() - started) / 1_000_000;
+        }
+    }
+
+    private static long restart(Path dataDir) throws Exception {
+        long started = System.nanoTime();
+        try (ConfigurableApplicationContext context = start(dataDir);
+             HttpClient client = HttpClient.newHttpClient()) {
+            URI base = baseUri(context);
+            HttpResponse<String> first = client.send(HttpRequest.newBuilder(base.resolve("/fruits?limit=1")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            if (first.statusCode() != 200 || first.body().equals("[]")) {
+                throw new IllegalStateException("No stored fruits served: " + first.statusCode());
+            }
+            return (System.nanoTime() - started) / 1_000_000;
+        }
+    }
+
+    private static ConfigurableApplicationContext start(Path dataDir) {
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.jpa.show-sql=false",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN"));
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(FruitApiH2Application.class);
+        if (dataDir != null) {
+            builder.profiles("prod");
+            args.add("--fruit.data-dir=" + dataDir);
+        } else {
+            args.add("--spring.datasource.url=jdbc:h2:mem:startup;DB_CLOSE_ON_EXIT=FALSE");
+        }
+        return builder.run(args.toArray(String[]::new));
+    }
+
+    private static URI baseUri(ConfigurableApplicationContext context) {
+        return URI.create("http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort());
+    }
+
+    private static void awaitFruit(HttpClient client, URI base, long id) throws Exception {
+        HttpResponse<Void> response = client.send(HttpRequest.newBuilder(base.resolve("/fruits/" + id)).build(),
+                HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Fruit " + id + " not served: " + response.statusCode());
+        }
+    }
+
+    private static long sizeOf(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package cat.itacademy.s04.s02.n01.fruit.metrics;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitRequestDTO;
+import cat.itacademy.s04.s02.n01.fruit.service.FruitStatsService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@Transactional
+public class FruitMetricsIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private double errors(String status, String reason) {
+        Counter counter = meterRegistry.find("fruit.errors").tags("status", status, "reason", reason).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    @Test
+    @DisplayName("GET /fruits/{id} - must record the JDBC statements it executed")
+    void testQueriesPerRequest() throws Exception {
+        String created = mockMvc.perform(post("/fruits")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new FruitRequestDTO("Apple", 5))))
+                .andReturn().getResponse().getContentAsString();
+        long id = objectMapper.readTree(created).get("id").asLong();
+
+        DistributionSummary queries = meterRegistry.find("fruit.db.queries").tag("uri", "/fruits/stats").summary();
+        long before = queries == null ? 0 : queries.count();
+
+        mockMvc.perform(get("/fruits/stats")).andExpect(status().isOk());
+        mockMvc.perform(get("/fruits/" + id)).andExpect(status().isOk());
+
+        queries = meterRegistry.get("fruit.db.queries").tag("uri", "/fruits/stats").summary();
+        assertEquals(before + 1, queries.count());
+        assertTrue(queries.totalAmount() >= 1);
+        assertTrue(meterRegistry.get("fruit.db.queries").tag("uri", "/fruits/{id}").summary().count() >= 1);
+    }
+
+    @Test
+    @DisplayName("GET /fruits/stream and /fruits/export - must record the statements they run through JdbcTemplate")
+    void testJdbcTemplateQueriesPerRequest() throws Exception {
+        mockMvc.perform(get("/fruits/stream")).andExpect(status().isOk());
+        mockMvc.perform(get("/fruits/export")).andExpect(status().isOk());
+
+        assertTrue(meterRegistry.get("fruit.db.queries").tag("uri", "/fruits/stream").summary().totalAmount() >= 1);
+        assertTrue(meterRegistry.get("fruit.db.queries").tag("uri", "/fruits/export").summary().totalAmount() >= 1);
+    }
+
+    @Test
+    @DisplayName("Services - must record a latency timer per method")
+    void testServiceTimers() throws Exception {
+        mockMvc.perform(get("/fruits/stats")).andExpect(status().isOk());
+
+        Timer timer = meterRegistry.get("fruit.service")
+                .tags("class", FruitStatsService.class.getName(), "method", "getTotals").timer();
+        assertTrue(timer.count() >= 1);
+    }
+
+    @Test
+    @DisplayName("Errors - must count 404 and 400 responses by reason")
+    void testErrorCounters() throws Exception {
+        double notFound = errors("404", "not_found");
+        double validation = errors("400", "validation");
+
+        mockMvc.perform(get("/fruits/999999")).andExpect(status().isNotFound());
+        mockMvc.perform(post("/fruits")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new FruitRequestDTO("", 5))))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(notFound + 1, errors("404", "not_found"));
+        assertEquals(validation + 1, errors("400", "validation"));
+    }
+
+    @Test
+    @DisplayName("GET /actuator/prometheus - must expose latency histograms and Hibernate statistics")
+    void testPrometheusScrape() throws Exception {
+        mockMvc.perform(get("/fruits")).andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("http_server_requests_seconds_bucket")))
+                .andExpect(content().string(containsString("fruit_service_seconds_bucket")))
+                .andExpect(content().string(containsString("fruit_db_queries")))
+                .andExpect(content().string(containsString("hibernate_")));
+    }
+}
@@ -0,0 +1,98 @@
+package cat.itacademy.s04.s02.n01.fruit.repository;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitFilter;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks with H2 {@code EXPLAIN} that the queries built by {@link FruitSpecifications} are answered from
+ * the {@code fruits} indexes rather than a primary key scan. The SQL explained is the statement Hibernate
+ * actually sends for {@link FruitRepository#findResponses}, captured with a {@link StatementInspector}.
+ */
+@SpringBootTest
+@Transactional
+class FruitIndexTest {
+
+    private static final int PAGE_SIZE = 100;
+    private static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+    @TestConfiguration
+    static class CapturedSql {
+
+        @Bean
+        HibernatePropertiesCustomizer captureSql() {
+            return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR,
+                    (StatementInspector) sql -> {
+                        STATEMENTS.add(sql);
+                        return sql;
+                    });
+        }
+    }
+
+    @Autowired
+    private FruitRepository fruitRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void createFruits() {
+        jdbcTemplate.update("INSERT INTO fruits (id, name, weight_in_kilos) " +
+                "SELECT x, 'Fruit ' || MOD(x, 1000), MOD(x, 100) + 1 FROM SYSTEM_RANGE(1, 10000)");
+    }
+
+    /**
+     * Runs the page query and explains the statement Hibernate prepared for it, with {@code parameters}
+     * bound in the order the specification adds them (the page size last).
+     */
+    private String explain(FruitFilter filter, Long after, Object... parameters) {
+        STATEMENTS.clear();
+        fruitRepository.findResponses(FruitSpecifications.matching(filter, after), PAGE_SIZE);
+        assertThat(STATEMENTS).hasSize(1);
+
+        Object[] bound = new Object[parameters.length + 1];
+        System.arraycopy(parameters, 0, bound, 0, parameters.length);
+        bound[parameters.length] = PAGE_SIZE;
+        return jdbcTemplate.queryForObject("EXPLAIN " + STATEMENTS.getFirst(), String.class, bound);
+    }
+
+    @Test
+    @DisplayName("name - must use the name_key index, also on later keyset pages")
+    void testExactName_UsesIndex() {
+        FruitFilter filter = new FruitFilter("Fruit 5", null, null, null);
+
+        assertThat(explain(filter, null, "fruit 5"))
+                .contains("IDX_FRUITS_NAME_KEY");
+        assertThat(explain(filter, 5000L, 5000L, "fruit 5"))
+                .contains("IDX_FRUITS_NAME_KEY: ID > ");
+    }
+
+    @Test
+    @DisplayName("namePrefix - must turn the prefix LIKE into a name_key index range")
+    void testNamePrefix_UsesIndex() {
+        assertThat(explain(new FruitFilter(null, "Fruit 99", null, null), null, "fruit 99%"))
+                .contains("IDX_FRUITS_NAME_KEY: NAME_KEY >= ");
+    }
+
+    @Test
+    @DisplayName("minWeight/maxWeight - must use the weight index")
+    void testWeightRange_UsesIndex() {
+        assertThat(explain(new FruitFilter(null, null, 50, 51), null, 50, 51))
+                .contains("IDX_FRUITS_WEIGHT");
+    }
+}
@@ -0,0 +1,144 @@
+package cat.itacademy.s04.s02.n01.fruit.repository;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitFilter;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitResponseDTO;
+import cat.itacademy.s04.s02.n01.fruit.exceptions.FruitVersionConflictException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FruitMemoryStoreTest {
+
+    @TempDir
+    Path dataDir;
+
+    private FruitMemoryStore open(DataSize journalSize) throws Exception {
+        FruitMemoryStore store = new FruitMemoryStore(new SimpleMeterRegistry(), dataDir.toString(), journalSize,
+                Duration.ofHours(1), Duration.ofHours(1));
+        store.open();
+        return store;
+    }
+
+    private static FruitMemoryStore inMemory() throws Exception {
+        FruitMemoryStore store = new FruitMemoryStore(new SimpleMeterRegistry(), "", DataSize.ofMegabytes(1),
+                Duration.ofHours(1), Duration.ofHours(1));
+        store.open();
+        return store;
+    }
+
+    private static List<Long> ids(List<FruitResponseDTO> fruits) {
+        return fruits.stream().map(FruitResponseDTO::getId).toList();
+    }
+
+    @Test
+    @DisplayName("findPage - must filter by name, prefix and weight and page by id")
+    void testFindPage() throws Exception {
+        FruitMemoryStore store = inMemory();
+        long apple = store.insert("Apple", 5).getId();
+        long apricot = store.insert("Apricot", 2).getId();
+        long banana = store.insert("Banana", 7).getId();
+        long greenApple = store.insert("APPLE", 9).getId();
+
+        assertEquals(List.of(apple, greenApple), ids(store.findPage(new FruitFilter("apple", null, null, null), null, 10)));
+        assertEquals(List.of(apple, apricot), ids(store.findPage(new FruitFilter(null, "Ap", null, 8), null, 10)));
+        assertEquals(List.of(banana, greenApple), ids(store.findPage(new FruitFilter(null, null, 6, null), null, 10)));
+        assertEquals(List.of(banana), ids(store.findPage(FruitFilter.NONE, apricot, 1)));
+    }
+
+    @Test
+    @DisplayName("update/delete - must check the expected version")
+    void testConditionalWrites() throws Exception {
+        FruitMemoryStore store = inMemory();
+        long id = store.insert("Apple", 5).getId();
+
+        assertEquals(1L, store.update(id, "Apple", 6, 0L).getVersion());
+        assertThrows(FruitVersionConflictException.class, () -> store.update(id, "Apple", 7, 0L));
+        assertThrows(FruitVersionConflictException.class, () -> store.delete(id, 0L));
+        assertTrue(store.delete(id, 1L));
+        assertNull(store.find(id));
+        assertNull(store.update(id, "Apple", 8, null));
+    }
+
+    @Test
+    @DisplayName("rollback - must undo inserts, updates and deletes made in the transaction")
+    void testRollback() throws Exception {
+        FruitMemoryStore store = inMemory();
+        long kept = store.insert("Apple", 5).getId();
+        long deleted = store.insert("Banana", 3).getId();
+        TransactionTemplate transaction = new TransactionTemplate(new MemoryTransactionManager());
+
+        long[] inserted = new long[1];
+        transaction.executeWithoutResult(status -> {
+            inserted[0] = store.insert("Cherry", 1).getId();
+            store.update(inserted[0], "Cherry", 2, null);
+            store.update(kept, "Apple", 6, null);
+            store.delete(deleted, null);
+            status.setRollbackOnly();
+        });
+
+        assertNull(store.find(inserted[0]));
+        assertEquals(5, store.find(kept).getWeightInKilos());
+        assertEquals(0L, store.find(kept).getVersion());
+        assertEquals("Banana", store.find(deleted).getName());
+        assertEquals(List.of(kept, deleted), ids(store.findPage(FruitFilter.NONE, null, 10)));
+    }
+
+    @Test
+    @DisplayName("restart - must recover the snapshot plus the journal, across journal rotations")
+    void testRecovery() throws Exception {
+        FruitMemoryStore store = open(DataSize.ofBytes(256));
+        for (int i = 0; i < 50; i++) {
+            store.insert("Fruit " + i, i + 1);
+        }
+        store.snapshot();
+        store.update(1, "Apple", 42, null);
+        store.delete(2, null);
+        long last = store.insert("Kiwi", 3).getId();
+        // no close(): the last changes are only in the journals
+        FruitMemoryStore reopened = open(DataSize.ofBytes(256));
+
+        assertEquals(42, reopened.find(1).getWeightInKilos());
+        assertEquals(1L, reopened.find(1).getVersion());
+        assertNull(reopened.find(2));
+        assertEquals("Kiwi", reopened.find(last).getName());
+        assertEquals(50, reopened.findPage(FruitFilter.NONE, null, 100).size());
+        assertEquals(last + 1, reopened.insert("Lime", 1).getId());
+        reopened.close();
+
+        FruitMemoryStore afterClose = open(DataSize.ofBytes(256));
+        assertEquals(51, afterClose.findPage(FruitFilter.NONE, null, 100).size());
+        afterClose.close();
+    }
+
+    @Test
+    @DisplayName("concurrent inserts - must keep the rows in id order while the journal is synced")
+    void testConcurrentInserts() throws Exception {
+        FruitMemoryStore store = new FruitMemoryStore(new SimpleMeterRegistry(), dataDir.toString(),
+                DataSize.ofKilobytes(4), Duration.ofHours(1), Duration.ofMillis(1));
+        store.open();
+        CompletableFuture.allOf(IntStream.range(0, 4)
+                .mapToObj(thread -> CompletableFuture.runAsync(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        store.insert("Fruit", i + 1);
+                    }
+                }))
+                .toArray(CompletableFuture[]::new)).join();
+
+        List<Long> expected = LongStream.rangeClosed(1, 2000).boxed().toList();
+        assertEquals(expected, ids(store.findPage(FruitFilter.NONE, null, 3000)));
+        store.close();
+        assertEquals(expected, ids(open(DataSize.ofKilobytes(4)).findPage(FruitFilter.NONE, null, 3000)));
+    }
+}
@@ -0,0 +1,126 @@
+package cat.itacademy.s04.s02.n01.fruit.service;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitRequestDTO;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitResponseDTO;
+import cat.itacademy.s04.s02.n01.fruit.repository.FruitRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Many simultaneous {@code findFruitById} calls for one id, with the fruit cache off. The lookup is
+ * slowed down to 50 ms, like a busy database, so the callers really overlap.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:coalescing",
+        "fruit.cache.max-size=0"
+})
+class FruitReadCoalescingTest {
+
+    private static final long QUERY_MILLIS = 50;
+
+    @TestConfiguration
+    static class SlowLookups {
+
+        @Bean
+        static BeanPostProcessor slowFindResponseById() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (!(bean instanceof FruitRepository repository)) {
+                        return bean;
+                    }
+                    return Proxy.newProxyInstance(FruitRepository.class.getClassLoader(),
+                            new Class<?>[]{FruitRepository.class}, (proxy, method, args) -> {
+                                if (method.getName().equals("findResponseById")) {
+                                    Thread.sleep(QUERY_MILLIS);
+                                }
+                                try {
+                                    return method.invoke(repository, args);
+                                } catch (InvocationTargetException e) {
+                                    throw e.getCause();
+                                }
+                            });
+                }
+            };
+        }
+    }
+
+    @Autowired
+    private FruitService fruitService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Long id;
+
+    @BeforeEach
+    void createFruit() {
+        id = fruitService.createFruit(new FruitRequestDTO("Apple", 5)).getId();
+    }
+
+    @AfterEach
+    void deleteFruit() {
+        fruitService.deleteFruit(id);
+    }
+
+    /** Returns the number of queries run for {@code readers} simultaneous lookups of {@code fruitId}. */
+    private long concurrentReads(int readers, Long fruitId, Optional<Long> expectedId) throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        long queriesBefore = statistics.getQueryExecutionCount();
+        CountDownLatch start = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Optional<FruitResponseDTO>>> reads = new ArrayList<>();
+            for (int i = 0; i < readers; i++) {
+                reads.add(executor.submit(() -> {
+                    start.await();
+                    return fruitService.findFruitById(fruitId);
+                }));
+            }
+            start.countDown();
+            for (Future<Optional<FruitResponseDTO>> read : reads) {
+                assertEquals(expectedId, read.get(30, TimeUnit.SECONDS).map(FruitResponseDTO::getId));
+            }
+        }
+        return statistics.getQueryExecutionCount() - queriesBefore;
+    }
+
+    @Test
+    @DisplayName("findFruitById - the number of queries must not grow with the number of concurrent readers")
+    void testConcurrentReads_QueryCountStaysFlat() throws Exception {
+        Long missing = id + 1_000;
+
+        System.out.printf("%8s %10s %16s%n", "readers", "queries", "queries (404)");
+        for (int readers : new int[]{1, 10, 100, 1_000}) {
+            long found = concurrentReads(readers, id, Optional.of(id));
+            long notFound = concurrentReads(readers, missing, Optional.empty());
+            System.out.printf("%8d %10d %16d%n", readers, found, notFound);
+
+            // One load, plus one more for a reader that only got there after it had finished.
+            assertTrue(found <= 2, readers + " readers ran " + found + " queries");
+            assertTrue(notFound <= 2, readers + " readers of a missing id ran " + notFound + " queries");
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package cat.itacademy.s04.s02.n01.fruit.service;
+
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitRequestDTO;
+import cat.itacademy.s04.s02.n01.fruit.dto.FruitResponseDTO;
+import cat.itacademy.s04.s02.n01.fruit.exceptions.FruitVersionConflictException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Many threads updating the same fruit at once. Not transactional: every update commits on its own.
+ */
+@SpringBootTest
+class FruitServiceConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int UPDATES_PER_THREAD = 25;
+
+    @Autowired
+    private FruitService fruitService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long id;
+
+    @BeforeEach
+    void createFruit() {
+        id = fruitService.createFruit(new FruitRequestDTO("Apple", 1)).getId();
+    }
+
+    @AfterEach
+    void deleteFruit() {
+        fruitService.deleteFruit(id);
+    }
+
+    private long versionInDatabase() {
+        return jdbcTemplate.queryForObject("SELECT version FROM fruits WHERE id = ?", Long.class, id);
+    }
+
+    private void runConcurrently(Callable<Void> task) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            for (Future<Void> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Unconditional updates - every update must be applied exactly once")
+    void testConcurrentUpdates_NoneLost() throws Exception {
+        runConcurrently(() -> {
+            for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+                fruitService.updateFruit(id, new FruitRequestDTO("Apple", i + 1));
+            }
+            return null;
+        });
+
+        assertEquals(THREADS * UPDATES_PER_THREAD, versionInDatabase());
+    }
+
+    @Test
+    @DisplayName("Conditional updates on the same version - exactly one must win, the rest must conflict")
+    void testConcurrentConditionalUpdates_OneWins() throws Exception {
+        long version = fruitService.findFruitById(id).map(FruitResponseDTO::getVersion).orElseThrow();
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+
+        runConcurrently(() -> {
+            try {
+                fruitService.updateFruit(id, new FruitRequestDTO("Green Apple", 2), version);
+                succeeded.incrementAndGet();
+            } catch (FruitVersionConflictException e) {
+                conflicts.incrementAndGet();
+            }
+            return null;
+        });
+
+        assertEquals(1, succeeded.get());
+        assertEquals(THREADS - 1, conflicts.get());
+        assertEquals(version + 1, versionInDatabase());
+    }
+
+    @Test
+    @DisplayName("Read-modify-write with If-Match retries - no increment may be lost")
+    void testConcurrentCompareAndSet_NoLostUpdates() throws Exception {
+        runConcurrently(() -> {
+            for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+                while (true) {
+                    FruitResponseDTO current = fruitService.findFruitById(id).orElseThrow();
+                    try {
+                        fruitService.updateFruit(id,
+                                new FruitRequestDTO("Apple", current.getWeightInKilos() + 1), current.getVersion());
+                        break;
+                    } catch (FruitVersionConflictException e) {
+                        // another thread won this round; read again
+                    }
+                }
+            }
+            return null;
+        });
+
+        int weight = fruitService.findFruitById(id).orElseThrow().getWeightInKilos();
+        assertEquals(1 + THREADS * UPDATES_PER_THREAD, weight);
+    }
+}